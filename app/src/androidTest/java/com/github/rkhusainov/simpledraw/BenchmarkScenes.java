@@ -0,0 +1,81 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Color;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Polygon;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Reproducible scenes for the benchmarks.
+ */
+final class BenchmarkScenes {
+    static final int WIDTH = 1080;
+    static final int HEIGHT = 1920;
+
+    // несколько цветов, чтобы были и серии одного цвета, и смена цвета
+    private static final int[] COLORS = {Color.BLACK, Color.RED, Color.BLUE, Color.GREEN};
+    private static final int POINTS_PER_SHAPE = 16;
+    private static final float SHAPE_SIZE = 120f;
+
+    private BenchmarkScenes() {
+    }
+
+    /**
+     * Sealed shapes of one type scattered over {@code size} x {@code size} world units.
+     */
+    static List<Shape> createShapes(DrawType drawType, int count, float size, long seed) {
+        Random random = new Random(seed);
+        Bounds dirty = new Bounds();
+        List<Shape> shapes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            float x = random.nextFloat() * size;
+            float y = random.nextFloat() * size;
+            Shape shape = drawType.createShape(x, y, COLORS[random.nextInt(COLORS.length)]);
+            if (shape instanceof Polygon) {
+                ((Polygon) shape).addPoint(x, y);
+            }
+            for (int p = 1; p < POINTS_PER_SHAPE; p++) {
+                float px = x + (random.nextFloat() - 0.5f) * SHAPE_SIZE;
+                float py = y + (random.nextFloat() - 0.5f) * SHAPE_SIZE;
+                if (shape instanceof Polygon) {
+                    // многоугольник из нескольких пальцев
+                    if (p < 4) {
+                        ((Polygon) shape).addPoint(px, py);
+                    }
+                } else {
+                    shape.dragTo(px, py, dirty);
+                }
+            }
+            shape.seal();
+            shapes.add(shape);
+        }
+        return shapes;
+    }
+
+    /**
+     * Equal share of every type, mixed in z-order the way a real drawing is.
+     */
+    static List<Shape> createMixedShapes(int count, float size, long seed) {
+        List<Shape> shapes = new ArrayList<>(count);
+        DrawType[] types = DrawType.values();
+        for (int i = 0; i < types.length; i++) {
+            shapes.addAll(createShapes(types[i], count / types.length, size, seed + i));
+        }
+        // перемешиваем, чтобы типы шли вперемешку по z-порядку
+        Collections.shuffle(shapes, new Random(seed));
+        return shapes;
+    }
+
+    static DrawController createController() {
+        DrawController controller = new DrawController(1f);
+        // без фонового упрощения фигуры попадают в сцену сразу
+        controller.setSimplifyTolerance(0);
+        return controller;
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Cost of a frame with a CURVE stroke in progress, against the number of points in it. The
+ * path is extended incrementally, so the cost should grow linearly.
+ */
+@RunWith(Parameterized.class)
+public class CurveStrokeBenchmark {
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final int mPointCount;
+
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+
+    public CurveStrokeBenchmark(int pointCount) {
+        mPointCount = pointCount;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][]{{250}, {2000}});
+    }
+
+    @Before
+    public void setUp() {
+        mBitmap = Bitmap.createBitmap(BenchmarkScenes.WIDTH, BenchmarkScenes.HEIGHT, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+    }
+
+    @After
+    public void tearDown() {
+        mBitmap.recycle();
+    }
+
+    @Test
+    public void frameWithStrokeInProgress() {
+        DrawController controller = BenchmarkScenes.createController();
+        controller.setDrawType(DrawType.CURVE);
+        controller.touchDown(0, 0, 0);
+        for (int i = 1; i <= mPointCount; i++) {
+            // зигзаг, чтобы кривая не отбрасывала точки как слишком близкие
+            controller.touchMove(0, (i * 7) % BenchmarkScenes.WIDTH,
+                    (float) i / mPointCount * BenchmarkScenes.HEIGHT);
+        }
+        while (!controller.render(mCanvas, BenchmarkScenes.WIDTH, BenchmarkScenes.HEIGHT)) {
+            // прогреваем кэш плиток
+        }
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            controller.render(mCanvas, BenchmarkScenes.WIDTH, BenchmarkScenes.HEIGHT);
+        }
+    }
+}
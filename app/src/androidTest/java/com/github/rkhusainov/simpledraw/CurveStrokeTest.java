@@ -0,0 +1,85 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.github.rkhusainov.simpledraw.model.Curve;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * CURVE stroke lifecycle: one drag must produce one curve with every point, not a curve per
+ * move. Frame cost against stroke length is measured by {@link CurveStrokeBenchmark}.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CurveStrokeTest {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    @Test
+    public void singleCurvePerStroke() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                DrawView view = createView();
+                // без упрощения кривая попадает в сцену сразу и со всеми точками
+                view.setSimplifyTolerance(0);
+                stroke(view, 500, true);
+
+                assertEquals(1, view.getScene().size());
+                Curve curve = (Curve) view.getScene().get(0);
+                assertEquals(501, curve.getPointCount());
+                assertTrue(curve.isSealed());
+            }
+        });
+    }
+
+    @Test
+    public void movesDoNotCommitCurves() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                DrawView view = createView();
+                view.setSimplifyTolerance(0);
+                // раньше каждый MOVE добавлял в сцену свою кривую
+                stroke(view, 500, false);
+                assertEquals(0, view.getScene().size());
+            }
+        });
+    }
+
+    private DrawView createView() {
+        DrawView view = new DrawView(InstrumentationRegistry.getInstrumentation().getTargetContext());
+        view.layout(0, 0, WIDTH, HEIGHT);
+        view.setDrawType(DrawType.CURVE);
+        return view;
+    }
+
+    private void stroke(DrawView view, int points, boolean finish) {
+        long downTime = SystemClock.uptimeMillis();
+        send(view, downTime, MotionEvent.ACTION_DOWN, 0, 0);
+        float x = 0;
+        float y = 0;
+        for (int i = 1; i <= points; i++) {
+            x = (i * 7) % WIDTH;
+            y = (float) i / points * HEIGHT;
+            send(view, downTime, MotionEvent.ACTION_MOVE, x, y);
+        }
+        if (finish) {
+            send(view, downTime, MotionEvent.ACTION_UP, x, y);
+        }
+    }
+
+    private void send(DrawView view, long downTime, int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        view.onTouchEvent(event);
+        event.recycle();
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.github.rkhusainov.simpledraw.model.Line;
+import com.github.rkhusainov.simpledraw.model.Scene;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Undo must give the same pixels as rendering the remaining shapes from scratch, whether
+ * tiles come from checkpoints or not.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HistoryTest {
+    private static final int SIZE = 512;
+    private static final int CACHE_BYTES = 64 * 1024 * 1024;
+
+    private PaintCache mPaints = new PaintCache(Paint.ANTI_ALIAS_FLAG);
+
+    @Test
+    public void undoRedoMatchesFreshRender() {
+        Scene scene = new Scene();
+        TileRenderer tiles = new TileRenderer(scene, CACHE_BYTES, CACHE_BYTES);
+        History history = new History(scene, tiles, mPaints, 4);
+        List<Shape> shapes = createShapes(30);
+
+        for (Shape shape : shapes) {
+            history.addShape(shape);
+            // плитки должны быть в кэше, иначе снимков не будет
+            render(tiles);
+        }
+        Bitmap all = render(tiles);
+
+        for (int i = 0; i < 7; i++) {
+            assertTrue(history.undo() != null);
+        }
+        assertEquals(23, scene.size());
+        assertTrue(render(tiles).sameAs(renderFresh(shapes.subList(0, 23))));
+
+        for (int i = 0; i < 7; i++) {
+            assertTrue(history.redo() != null);
+        }
+        assertFalse(history.canRedo());
+        assertTrue(render(tiles).sameAs(all));
+    }
+
+    @Test
+    public void clearCanBeUndone() {
+        Scene scene = new Scene();
+        TileRenderer tiles = new TileRenderer(scene, CACHE_BYTES, CACHE_BYTES);
+        History history = new History(scene, tiles, mPaints, 4);
+        List<Shape> shapes = createShapes(10);
+        for (Shape shape : shapes) {
+            history.addShape(shape);
+        }
+        Bitmap all = render(tiles);
+
+        history.clearScene();
+        assertEquals(0, scene.size());
+        assertTrue(render(tiles).sameAs(renderFresh(new ArrayList<Shape>())));
+
+        history.undo();
+        assertEquals(10, scene.size());
+        assertTrue(render(tiles).sameAs(all));
+    }
+
+    @Test
+    public void newCommandDropsRedo() {
+        Scene scene = new Scene();
+        TileRenderer tiles = new TileRenderer(scene, CACHE_BYTES, CACHE_BYTES);
+        History history = new History(scene, tiles, mPaints, 4);
+        List<Shape> shapes = createShapes(12);
+        for (int i = 0; i < 10; i++) {
+            history.addShape(shapes.get(i));
+            render(tiles);
+        }
+        history.undo();
+        history.undo();
+        history.addShape(shapes.get(10));
+        assertFalse(history.canRedo());
+
+        List<Shape> expected = new ArrayList<>(shapes.subList(0, 8));
+        expected.add(shapes.get(10));
+        // снимки после отменённых команд не должны всплыть
+        history.undo();
+        history.redo();
+        assertTrue(render(tiles).sameAs(renderFresh(expected)));
+    }
+
+    @Test
+    public void removeShapeRepaintsOnlyItsArea() {
+        Scene scene = new Scene();
+        TileRenderer tiles = new TileRenderer(scene, CACHE_BYTES, CACHE_BYTES);
+        History history = new History(scene, tiles, mPaints, 4);
+        List<Shape> shapes = createShapes(20);
+        for (Shape shape : shapes) {
+            history.addShape(shape);
+        }
+        Bitmap all = render(tiles);
+
+        // плитки остаются в кэше, стёртое место перерисовывается из сцены
+        history.removeShape(shapes.get(5));
+        List<Shape> expected = new ArrayList<>(shapes);
+        expected.remove(5);
+        assertEquals(19, scene.size());
+        assertTrue(render(tiles).sameAs(renderFresh(expected)));
+
+        // вернуть надо на прежнюю глубину, а не наверх
+        assertEquals(5, ((History.RemoveShape) history.undo()).getIndex());
+        assertTrue(scene.get(5) == shapes.get(5));
+        assertTrue(render(tiles).sameAs(all));
+    }
+
+    @Test
+    public void strokeOnBlankCanvasThenUndo() {
+        Scene scene = new Scene();
+        TileRenderer tiles = new TileRenderer(scene, CACHE_BYTES, CACHE_BYTES);
+        History history = new History(scene, tiles, mPaints, 1);
+        // пустые плитки без битмапов, первая фигура даёт им битмапы
+        Bitmap blank = render(tiles);
+        List<Shape> shapes = createShapes(3);
+        history.addShape(shapes.get(0));
+        render(tiles);
+        history.addShape(shapes.get(1));
+        history.undo();
+        history.undo();
+        // новая команда выбрасывает снимки после себя, clear() вытесняет все плитки
+        history.addShape(shapes.get(2));
+        history.clearScene();
+        tiles.clear();
+        assertTrue(render(tiles).sameAs(blank));
+    }
+
+    private Bitmap renderFresh(List<Shape> shapes) {
+        Scene scene = new Scene();
+        for (Shape shape : shapes) {
+            scene.add(shape);
+        }
+        return render(new TileRenderer(scene, CACHE_BYTES, 1));
+    }
+
+    private Bitmap render(TileRenderer tiles) {
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        while (!tiles.draw(canvas, new Matrix(), SIZE, SIZE, mPaints)) {
+            bitmap.eraseColor(0);
+        }
+        return bitmap;
+    }
+
+    private static List<Shape> createShapes(int count) {
+        List<Shape> shapes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Line line = new Line(i * 17 % SIZE, i * 31 % SIZE, 0xFF000000 | (i * 0x123457));
+            line.setEnd(SIZE - i * 13 % SIZE, i * 7 % SIZE);
+            shapes.add(line);
+        }
+        return shapes;
+    }
+}
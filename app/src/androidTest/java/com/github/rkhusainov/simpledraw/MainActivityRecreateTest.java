@@ -0,0 +1,51 @@
+package com.github.rkhusainov.simpledraw;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.github.rkhusainov.simpledraw.model.Scene;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertSame;
+
+/**
+ * A configuration change must hand the same controller, and with it the scene, the history
+ * and the rendered tiles, to the new activity instead of loading the drawing again.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MainActivityRecreateTest {
+
+    @Test
+    public void recreateKeepsController() {
+        ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class);
+        try {
+            final DrawController[] controller = new DrawController[1];
+            final Scene[] scene = new Scene[1];
+            scenario.onActivity(new ActivityScenario.ActivityAction<MainActivity>() {
+                @Override
+                public void perform(MainActivity activity) {
+                    DrawView view = activity.findViewById(R.id.draw_view);
+                    controller[0] = view.getController();
+                    scene[0] = view.getScene();
+                }
+            });
+
+            scenario.recreate();
+
+            scenario.onActivity(new ActivityScenario.ActivityAction<MainActivity>() {
+                @Override
+                public void perform(MainActivity activity) {
+                    DrawView view = activity.findViewById(R.id.draw_view);
+                    DrawSurfaceView surfaceView = activity.findViewById(R.id.draw_surface_view);
+                    assertSame(controller[0], view.getController());
+                    assertSame(controller[0], surfaceView.getController());
+                    assertSame(scene[0], view.getScene());
+                }
+            });
+        } finally {
+            scenario.close();
+        }
+    }
+}
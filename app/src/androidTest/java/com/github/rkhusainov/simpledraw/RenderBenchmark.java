@@ -0,0 +1,107 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.github.rkhusainov.simpledraw.model.Scene;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Frame cost against scene size for each tool: rasterizing every visible tile from scratch,
+ * and a frame served from the tile cache.
+ */
+@RunWith(Parameterized.class)
+public class RenderBenchmark {
+    private static final int[] SCENE_SIZES = {100, 1000, 10000};
+    private static final int CACHE_BYTES = 64 * 1024 * 1024;
+    // сцена чуть больше экрана: часть фигур отсекается индексом
+    private static final float WORLD_SIZE = 2 * BenchmarkScenes.HEIGHT;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final DrawType mDrawType;
+    private final int mShapeCount;
+
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+
+    public RenderBenchmark(DrawType drawType, int shapeCount) {
+        mDrawType = drawType;
+        mShapeCount = shapeCount;
+    }
+
+    @Parameterized.Parameters(name = "{0}_{1}")
+    public static Collection<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (DrawType drawType : DrawType.values()) {
+            for (int size : SCENE_SIZES) {
+                parameters.add(new Object[]{drawType, size});
+            }
+        }
+        return parameters;
+    }
+
+    @Before
+    public void setUp() {
+        mBitmap = Bitmap.createBitmap(BenchmarkScenes.WIDTH, BenchmarkScenes.HEIGHT, Bitmap.Config.ARGB_8888);
+        mCanvas = new Canvas(mBitmap);
+    }
+
+    @After
+    public void tearDown() {
+        mBitmap.recycle();
+    }
+
+    @Test
+    public void rasterizeTiles() {
+        Scene scene = new Scene();
+        for (Shape shape : BenchmarkScenes.createShapes(mDrawType, mShapeCount, WORLD_SIZE, 1)) {
+            scene.add(shape);
+        }
+        TileRenderer tiles = new TileRenderer(scene, CACHE_BYTES, 0);
+        Matrix identity = new Matrix();
+        PaintCache paints = new PaintCache(Paint.ANTI_ALIAS_FLAG);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            tiles.clear();
+            state.resumeTiming();
+            // draw() укладывается в бюджет кадра, поэтому дорисовываем до конца
+            while (!tiles.draw(mCanvas, identity, BenchmarkScenes.WIDTH, BenchmarkScenes.HEIGHT, paints)) {
+                // следующий кадр
+            }
+        }
+    }
+
+    @Test
+    public void cachedFrame() {
+        DrawController controller = BenchmarkScenes.createController();
+        controller.load(BenchmarkScenes.createShapes(mDrawType, mShapeCount, WORLD_SIZE, 1));
+        while (!controller.render(mCanvas, BenchmarkScenes.WIDTH, BenchmarkScenes.HEIGHT)) {
+            // прогреваем кэш плиток
+        }
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            controller.render(mCanvas, BenchmarkScenes.WIDTH, BenchmarkScenes.HEIGHT);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Box;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The exported PNG, put together from tiles rendered in parallel, must match the scene drawn
+ * into one bitmap.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SceneExporterTest {
+    private static final float SCALE = 1.5f;
+
+    @Test
+    public void pngMatchesSingleBitmap() throws IOException {
+        // больше одной плитки в ширину и нескольких полос в высоту
+        List<Shape> shapes = BenchmarkScenes.createMixedShapes(300, 600, 5);
+        SceneExporter exporter = new SceneExporter(shapes);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.writePng(out, SCALE, Color.WHITE);
+
+        Bounds bounds = exporter.getBounds();
+        int width = (int) Math.ceil(bounds.width() * SCALE);
+        int height = (int) Math.ceil(bounds.height() * SCALE);
+        assertTrue(width > SceneExporter.TILE_WIDTH && height > 2 * SceneExporter.BAND_HEIGHT);
+
+        Bitmap expected = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        expected.eraseColor(Color.WHITE);
+        Canvas canvas = new Canvas(expected);
+        canvas.scale(SCALE, SCALE);
+        canvas.translate(-bounds.left, -bounds.top);
+        PaintCache paints = new PaintCache(Paint.ANTI_ALIAS_FLAG);
+        for (Shape shape : shapes) {
+            // та же детализация кривых, что и у экспорта
+            ShapePainter.draw(shape, canvas, paints, SCALE);
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        byte[] png = out.toByteArray();
+        Bitmap actual = BitmapFactory.decodeByteArray(png, 0, png.length, options);
+        assertEquals(width, actual.getWidth());
+        assertEquals(height, actual.getHeight());
+        assertTrue(actual.sameAs(expected));
+    }
+
+    @Test
+    public void farApartShapesFitMaxWidth() throws IOException {
+        // на бесконечном холсте две фигуры далеко друг от друга - это сотни мегабайт полос
+        List<Shape> shapes = new ArrayList<>();
+        for (float x : new float[]{0f, 1e6f}) {
+            Box box = new Box(x, 0f, Color.BLACK);
+            box.setCurrent(x + 100f, 100f);
+            shapes.add(box);
+        }
+        SceneExporter exporter = new SceneExporter(shapes);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.writePng(out, 1f, Color.WHITE);
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        byte[] png = out.toByteArray();
+        BitmapFactory.decodeByteArray(png, 0, png.length, options);
+        assertTrue(options.outWidth <= SceneExporter.MAX_WIDTH);
+        assertTrue(options.outWidth > SceneExporter.MAX_WIDTH / 2);
+        assertTrue(exporter.fitScale(1f) < 1f);
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Cost of one scroll step: pan the view and draw the frame, as a fling over a large drawing does.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ScrollBenchmark {
+    private static final int SHAPES = 5000;
+    private static final float WORLD_SIZE = 8 * BenchmarkScenes.HEIGHT;
+    private static final float STEP = 24f;
+    // столько шагов в одну сторону, потом обратно: плитки то новые, то из кэша
+    private static final int STEPS_PER_SWEEP = 200;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void panAndDraw() {
+        DrawController controller = BenchmarkScenes.createController();
+        controller.load(BenchmarkScenes.createMixedShapes(SHAPES, WORLD_SIZE, 1));
+        Bitmap bitmap = Bitmap.createBitmap(BenchmarkScenes.WIDTH, BenchmarkScenes.HEIGHT, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Rect dirty = new Rect();
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        int step = 0;
+        while (state.keepRunning()) {
+            float direction = (step / STEPS_PER_SWEEP) % 2 == 0 ? -1 : 1;
+            controller.pan(direction * STEP, direction * STEP / 2);
+            controller.takeDirtyRect(dirty, BenchmarkScenes.WIDTH, BenchmarkScenes.HEIGHT);
+            controller.render(canvas, BenchmarkScenes.WIDTH, BenchmarkScenes.HEIGHT);
+            step++;
+        }
+        bitmap.recycle();
+    }
+}
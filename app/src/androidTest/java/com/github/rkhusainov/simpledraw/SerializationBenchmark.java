@@ -0,0 +1,84 @@
+package com.github.rkhusainov.simpledraw;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.github.rkhusainov.simpledraw.io.SceneReader;
+import com.github.rkhusainov.simpledraw.io.SceneWriter;
+import com.github.rkhusainov.simpledraw.model.Scene;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Throughput of the scene format: one iteration writes or reads the whole scene.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SerializationBenchmark {
+    private static final int SHAPES = 2000;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private List<Shape> mShapes;
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mShapes = BenchmarkScenes.createMixedShapes(SHAPES, 4 * BenchmarkScenes.HEIGHT, 1);
+        mFile = new File(InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir(),
+                "benchmark.sdrw");
+        SceneWriter.save(mShapes, mFile);
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void writeScene() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream((int) mFile.length());
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            buffer.reset();
+            SceneWriter writer = new SceneWriter(buffer);
+            for (int i = 0; i < mShapes.size(); i++) {
+                writer.write(mShapes.get(i));
+            }
+            writer.close();
+        }
+    }
+
+    @Test
+    public void openScene() throws IOException {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            // только заголовки, фигуры декодируются лениво
+            SceneReader reader = SceneReader.open(mFile);
+            reader.readInto(new Scene());
+        }
+    }
+
+    @Test
+    public void readAndDecodeScene() throws IOException {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            SceneReader reader = SceneReader.open(mFile);
+            for (int i = 0; i < reader.getShapeCount(); i++) {
+                reader.getShape(i).decode();
+            }
+        }
+    }
+}
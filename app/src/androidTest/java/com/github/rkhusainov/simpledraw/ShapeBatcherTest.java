@@ -0,0 +1,107 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.github.rkhusainov.simpledraw.model.Box;
+import com.github.rkhusainov.simpledraw.model.Line;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Batched drawing must give the same pixels as drawing shape by shape, z-order included.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ShapeBatcherTest {
+    private static final int SIZE = 256;
+
+    @Test
+    public void matchesShapeByShapeDrawing() {
+        List<Shape> shapes = new ArrayList<>();
+        // серия красных линий, поверх неё синие прямоугольники, поверх них снова красные линии
+        for (int i = 0; i < 20; i++) {
+            Line line = new Line(0, i * 12 + 4, Color.RED);
+            line.setEnd(SIZE, i * 12 + 4);
+            shapes.add(line);
+        }
+        for (int i = 0; i < 10; i++) {
+            Box box = new Box(i * 25, i * 20, Color.BLUE);
+            box.setCurrent(i * 25 + 20, i * 20 + 40);
+            shapes.add(box);
+        }
+        Line thin = new Line(0, 0, Color.RED);
+        thin.setStrokeWidth(3);
+        thin.setEnd(SIZE, SIZE);
+        shapes.add(thin);
+        for (int i = 0; i < 20; i++) {
+            Line line = new Line(i * 12 + 4, 0, Color.RED);
+            line.setEnd(i * 12 + 4, SIZE);
+            shapes.add(line);
+        }
+        // полупрозрачные рисуются по одной
+        Box translucent = new Box(40, 40, 0x80FF00FF);
+        translucent.setCurrent(200, 200);
+        shapes.add(translucent);
+
+        PaintCache paints = new PaintCache(0);
+        Bitmap expected = drawOneByOne(shapes, paints);
+
+        Bitmap actual = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        ShapeBatcher batcher = new ShapeBatcher();
+        batcher.draw(shapes, new Canvas(actual), paints, 1f);
+        assertTrue(actual.sameAs(expected));
+
+        // буферы переиспользуются между вызовами
+        actual.eraseColor(0);
+        batcher.draw(shapes, new Canvas(actual), paints, 1f);
+        assertTrue(actual.sameAs(expected));
+    }
+
+    @Test
+    public void reordersOnlyWhereNothingOverlaps() {
+        List<Shape> shapes = new ArrayList<>();
+        // шахматка: соседние клетки разного цвета, одноцветные можно рисовать одной серией
+        for (int i = 0; i < 64; i++) {
+            int x = i % 8 * 30;
+            int y = i / 8 * 30;
+            Box box = new Box(x, y, (i + i / 8) % 2 == 0 ? Color.RED : Color.BLUE);
+            box.setCurrent(x + 20, y + 20);
+            shapes.add(box);
+        }
+        // а эти перекрываются, их порядок менять нельзя
+        for (int i = 0; i < 10; i++) {
+            Line line = new Line(0, i * 5, i % 2 == 0 ? Color.GREEN : Color.BLACK);
+            line.setEnd(SIZE, SIZE - i * 20);
+            shapes.add(line);
+        }
+
+        PaintCache paints = new PaintCache(Paint.ANTI_ALIAS_FLAG);
+        Bitmap expected = drawOneByOne(shapes, paints);
+        Bitmap actual = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        new ShapeBatcher().draw(shapes, new Canvas(actual), paints, 1f);
+        assertTrue(actual.sameAs(expected));
+        // по краске на цвет, общие для всех фигур
+        assertEquals(4, paints.size());
+    }
+
+    private static Bitmap drawOneByOne(List<Shape> shapes, PaintCache paints) {
+        Bitmap bitmap = Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        for (Shape shape : shapes) {
+            ShapePainter.draw(shape, canvas, paints);
+        }
+        return bitmap;
+    }
+}
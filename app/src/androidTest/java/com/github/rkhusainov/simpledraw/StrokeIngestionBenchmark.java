@@ -0,0 +1,69 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Rect;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Cost of one touch sample on its way into the controller, dirty-rect bookkeeping included,
+ * for each tool.
+ */
+@RunWith(Parameterized.class)
+public class StrokeIngestionBenchmark {
+    // после стольких точек начинаем новый штрих, чтобы он не рос бесконечно
+    private static final int POINTS_PER_STROKE = 1000;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final DrawType mDrawType;
+
+    public StrokeIngestionBenchmark(DrawType drawType) {
+        mDrawType = drawType;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][]{
+                {DrawType.CURVE}, {DrawType.LINE}, {DrawType.BOX}, {DrawType.POLY}});
+    }
+
+    @Test
+    public void touchMove() {
+        DrawController controller = BenchmarkScenes.createController();
+        controller.setDrawType(mDrawType);
+        Rect dirty = new Rect();
+        controller.touchDown(0, 0, 0);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        int points = 0;
+        while (state.keepRunning()) {
+            points++;
+            // зигзаг, чтобы кривая не отбрасывала точки как слишком близкие
+            controller.touchMove(0, (points * 7) % BenchmarkScenes.WIDTH,
+                    (float) points / POINTS_PER_STROKE * BenchmarkScenes.HEIGHT);
+            controller.takeDirtyRect(dirty, BenchmarkScenes.WIDTH, BenchmarkScenes.HEIGHT);
+
+            if (points == POINTS_PER_STROKE) {
+                state.pauseTiming();
+                controller.touchUp(0, 0, BenchmarkScenes.HEIGHT);
+                controller.load(Collections.<Shape>emptyList());
+                controller.touchDown(0, 0, 0);
+                points = 0;
+                state.resumeTiming();
+            }
+        }
+    }
+}
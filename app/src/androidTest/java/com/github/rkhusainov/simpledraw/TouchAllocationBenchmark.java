@@ -0,0 +1,102 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Rect;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Objects allocated per touch sample. Time benchmarks do not show allocations, but every one
+ * of them on the input path is paid back later as a GC pause in the middle of a stroke.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TouchAllocationBenchmark {
+    private static final String TAG = "TouchAllocation";
+
+    private static final int WARMUP_EVENTS = 2000;
+    private static final int EVENTS = 20000;
+    // рост буфера точек удваивает массив, на 20000 точек это единицы аллокаций
+    private static final float MAX_ALLOCATIONS_PER_EVENT = 0.01f;
+
+    @Before
+    @SuppressWarnings("deprecation")
+    public void setUp() {
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+    }
+
+    @After
+    @SuppressWarnings("deprecation")
+    public void tearDown() {
+        Debug.stopAllocCounting();
+    }
+
+    @Test
+    public void curveTouchMove() {
+        assertAllocationFree(DrawType.CURVE);
+    }
+
+    @Test
+    public void lineTouchMove() {
+        assertAllocationFree(DrawType.LINE);
+    }
+
+    @Test
+    public void boxTouchMove() {
+        assertAllocationFree(DrawType.BOX);
+    }
+
+    @Test
+    public void polyTouchMove() {
+        assertAllocationFree(DrawType.POLY);
+    }
+
+    @SuppressWarnings("deprecation")
+    private void assertAllocationFree(DrawType drawType) {
+        assumeTrue("allocation counting is not supported", countingWorks());
+
+        DrawController controller = BenchmarkScenes.createController();
+        controller.setDrawType(drawType);
+        Rect dirty = new Rect();
+        controller.touchDown(0, 0, 0);
+        for (int i = 1; i <= WARMUP_EVENTS; i++) {
+            move(controller, dirty, i);
+        }
+
+        int before = Debug.getThreadAllocCount();
+        for (int i = WARMUP_EVENTS + 1; i <= WARMUP_EVENTS + EVENTS; i++) {
+            move(controller, dirty, i);
+        }
+        float perEvent = (float) (Debug.getThreadAllocCount() - before) / EVENTS;
+        controller.touchUp(0, 0, 0);
+
+        Log.i(TAG, drawType + ": " + perEvent + " allocations per touch event");
+        assertTrue(drawType + " allocates " + perEvent + " objects per event",
+                perEvent <= MAX_ALLOCATIONS_PER_EVENT);
+    }
+
+    private static void move(DrawController controller, Rect dirty, int i) {
+        controller.touchMove(0, (i * 7) % BenchmarkScenes.WIDTH, (i / 10) % BenchmarkScenes.HEIGHT);
+        controller.takeDirtyRect(dirty, BenchmarkScenes.WIDTH, BenchmarkScenes.HEIGHT);
+    }
+
+    // на части сборок ART счётчик не ведётся, тогда и проверять нечего
+    @SuppressWarnings("deprecation")
+    private static boolean countingWorks() {
+        int before = Debug.getThreadAllocCount();
+        Object[] probe = new Object[16];
+        for (int i = 0; i < probe.length; i++) {
+            probe[i] = new Object();
+        }
+        return Debug.getThreadAllocCount() - before >= probe.length;
+    }
+}
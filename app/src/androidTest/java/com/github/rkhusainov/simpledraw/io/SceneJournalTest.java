@@ -0,0 +1,141 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import android.graphics.Color;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.github.rkhusainov.simpledraw.model.Line;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class SceneJournalTest {
+    private File mSnapshot;
+    private File mJournal;
+
+    @Before
+    public void setUp() {
+        File dir = InstrumentationRegistry.getInstrumentation().getTargetContext().getCacheDir();
+        mSnapshot = new File(dir, "journal-test.sdrw");
+        mJournal = new File(dir, "journal-test.journal");
+        mSnapshot.delete();
+        mJournal.delete();
+    }
+
+    @Test
+    public void replaysAddsClearsAndView() throws Exception {
+        SceneJournal journal = open(SceneJournal.DEFAULT_COMPACTION_THRESHOLD);
+        assertTrue(journal.restore().isEmpty());
+        journal.add(line(1));
+        journal.clear();
+        journal.add(line(2));
+        journal.add(line(3));
+        journal.setView(2f, 10f, -20f);
+        journal.setView(3f, 30f, -40f);
+        journal.close();
+
+        journal = open(SceneJournal.DEFAULT_COMPACTION_THRESHOLD);
+        List<Shape> shapes = journal.restore();
+        assertEquals(2, shapes.size());
+        assertEquals(2, shapes.get(0).getColor());
+        assertEquals(3, shapes.get(1).getColor());
+
+        float[] view = new float[3];
+        assertTrue(journal.getRestoredView(view));
+        assertEquals(3f, view[0], 0);
+        assertEquals(30f, view[1], 0);
+        assertEquals(-40f, view[2], 0);
+        journal.close();
+    }
+
+    @Test
+    public void replaysRemovalsOnTopOfSnapshot() throws Exception {
+        SceneJournal journal = open(128);
+        journal.restore();
+        for (int i = 0; i < 10; i++) {
+            journal.add(line(i));
+        }
+        // удаляем фигуру, которая уже лежит в снимке
+        journal.remove(0);
+        journal.remove(3);
+        journal.close();
+
+        journal = open(128);
+        List<Shape> shapes = journal.restore();
+        assertEquals(8, shapes.size());
+        assertEquals(1, shapes.get(0).getColor());
+        assertEquals(5, shapes.get(3).getColor());
+        journal.close();
+    }
+
+    @Test
+    public void compactionKeepsJournalSmall() throws Exception {
+        long threshold = 256;
+        SceneJournal journal = open(threshold);
+        journal.restore();
+        for (int i = 0; i < 100; i++) {
+            journal.add(line(i));
+        }
+        journal.close();
+
+        // в журнале остаётся только хвост после последнего снимка
+        assertTrue(mSnapshot.exists());
+        assertTrue("journal " + mJournal.length(), mJournal.length() < threshold + 64);
+
+        journal = open(threshold);
+        List<Shape> shapes = journal.restore();
+        assertEquals(100, shapes.size());
+        for (int i = 0; i < shapes.size(); i++) {
+            assertEquals(i, shapes.get(i).getColor());
+        }
+        assertFalse(journal.getRestoredView(new float[3]));
+        journal.close();
+    }
+
+    @Test
+    public void staleJournalIsIgnored() throws Exception {
+        SceneWriter snapshot = SceneWriter.create(mSnapshot);
+        snapshot.writeGeneration(1);
+        for (int i = 0; i < 10; i++) {
+            snapshot.write(line(i));
+        }
+        snapshot.close();
+
+        // как будто упали между записью снимка и заменой журнала
+        SceneWriter stale = SceneWriter.create(mJournal);
+        stale.writeGeneration(0);
+        stale.write(line(42));
+        stale.close();
+
+        SceneJournal journal = open(SceneJournal.DEFAULT_COMPACTION_THRESHOLD);
+        List<Shape> shapes = journal.restore();
+        assertEquals(10, shapes.size());
+        journal.add(line(11));
+        journal.close();
+
+        journal = open(SceneJournal.DEFAULT_COMPACTION_THRESHOLD);
+        assertEquals(11, journal.restore().size());
+        journal.close();
+    }
+
+    private SceneJournal open(long threshold) {
+        return new SceneJournal(mSnapshot, mJournal, threshold);
+    }
+
+    private static Line line(int color) {
+        Line line = new Line(color, 0, color);
+        line.setEnd(color + 100, 50);
+        return line;
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Canvas;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Scene;
+
+/**
+ * Reversible change to the scene, kept in the {@link History}.
+ */
+public interface Command {
+
+    void apply(Scene scene);
+
+    void revert(Scene scene);
+
+    /**
+     * Writes the world area the command changes into {@code out}.
+     *
+     * @return false if the command affects the whole scene
+     */
+    boolean getBounds(Bounds out);
+
+    /**
+     * Repeats the command on a tile canvas that shows the scene as it was just before it.
+     * Only the part inside {@code area} has to be correct. The tile has {@code scale} pixels
+     * per world unit.
+     *
+     * @return false if the command cannot be redrawn on top and the tile must be rendered
+     * from the scene instead
+     */
+    boolean replay(Canvas canvas, PaintCache paints, Bounds area, float scale);
+}
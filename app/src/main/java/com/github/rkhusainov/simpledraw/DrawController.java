@@ -0,0 +1,699 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import com.github.rkhusainov.simpledraw.io.RemoteStrokes;
+import com.github.rkhusainov.simpledraw.io.StrokeOp;
+import com.github.rkhusainov.simpledraw.io.StrokeSession;
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Curve;
+import com.github.rkhusainov.simpledraw.model.PointBuffer;
+import com.github.rkhusainov.simpledraw.model.Polygon;
+import com.github.rkhusainov.simpledraw.model.Scene;
+import com.github.rkhusainov.simpledraw.model.Shape;
+import com.github.rkhusainov.simpledraw.model.Simplifier;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Drawing state and input handling shared by {@link DrawView} and {@link DrawSurfaceView}.
+ * Takes plain pointer samples in screen coordinates, so it does not care which thread or
+ * view they come from. Not thread safe: all calls must come from the thread that renders.
+ */
+public class DrawController implements TouchInput.Callback {
+    public static final float MIN_SCALE = 0.1f;
+    public static final float MAX_SCALE = 10f;
+    // какую часть heap можно отдать под плитки
+    private static final int TILE_CACHE_MEMORY_FRACTION = 8;
+    // и ещё столько же под снимки плиток для отмены
+    private static final int CHECKPOINT_MEMORY_FRACTION = 16;
+    // запас на сглаживание краёв, в px
+    private static final int DIRTY_MARGIN = 2;
+    private static final int SELECTION_COLOR = 0xFF2196F3;
+
+    // упрощение кривых идёт в фоне, один поток на все контроллеры
+    private static final Executor SIMPLIFY_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private PaintCache mPaints = new PaintCache(Paint.ANTI_ALIAS_FLAG);
+    private Paint mSelectionPaint = new Paint();
+
+    private Scene mScene = new Scene();
+    // фигура, которую сейчас рисует палец
+    private Shape mCurrentShape;
+    // палец, который рисует кривую, линию или прямоугольник
+    private int mStrokePointerId = -1;
+
+    // точки кривой ближе этого расстояния (в px) отбрасываются
+    private float mMinPointDistance;
+    // насколько (в px) можно промахнуться мимо фигуры ластиком или выделением
+    private float mHitSlop;
+    // фигура, выбранная инструментом SELECT
+    private Shape mSelected;
+
+    private int mCurrentColor = Color.BLACK;
+
+    private DrawType mDrawType = DrawType.CURVE;
+
+    // мир -> экран, фигуры хранятся в мировых координатах
+    private Matrix mViewMatrix = new Matrix();
+    private Matrix mInverseMatrix = new Matrix();
+    private float[] mTouchPoint = new float[2];
+    private float[] mMatrixValues = new float[9];
+
+    // завершённые фигуры, разложенные по плиткам
+    private TileRenderer mTileRenderer;
+    private History mHistory;
+
+    // область экрана, изменившаяся с прошлого takeDirtyRect()
+    private RectF mDirty = new RectF();
+    private boolean mDirtyAll = true;
+    private Bounds mShapeDirty = new Bounds();
+    private RectF mScreenDirty = new RectF();
+
+    private Listener mListener;
+
+    // допуск упрощения кривых в px экрана, 0 - не упрощать
+    private float mSimplifyTolerance;
+    // завершённые фигуры, которые ждут упрощения; в сцену попадают строго по порядку
+    private ArrayDeque<PendingShape> mPending = new ArrayDeque<>();
+    private Runnable mFrameRequester;
+
+    // совместное рисование: свои штрихи уходят в сессию, чужие приходят через неё
+    private StrokeSession mSession;
+    private RemoteStrokes mRemoteStrokes = new RemoteStrokes();
+    // номер текущей кривой в сессии и сколько её точек уже отправлено
+    private int mSessionStroke = -1;
+    private int mSentPointCount;
+
+    public DrawController(float minPointDistance) {
+        mMinPointDistance = minPointDistance;
+        mSelectionPaint.setStyle(Paint.Style.STROKE);
+        mSelectionPaint.setColor(SELECTION_COLOR);
+        long maxMemory = Runtime.getRuntime().maxMemory();
+        mTileRenderer = new TileRenderer(mScene,
+                (int) Math.min(Integer.MAX_VALUE, maxMemory / TILE_CACHE_MEMORY_FRACTION),
+                (int) Math.min(Integer.MAX_VALUE, maxMemory / CHECKPOINT_MEMORY_FRACTION));
+        mHistory = new History(mScene, mTileRenderer, mPaints, History.DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Draws the scene and the shape in progress.
+     *
+     * @return false if some tiles are still missing and another frame is needed
+     */
+    public boolean render(Canvas canvas, int width, int height) {
+        long start = System.nanoTime();
+        Runtime runtime = Runtime.getRuntime();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        boolean complete = mTileRenderer.draw(canvas, mViewMatrix, width, height, mPaints);
+
+        // фигуры, ожидающие упрощения, и текущая фигура
+        if (mCurrentShape != null || !mPending.isEmpty() || !mRemoteStrokes.getStrokes().isEmpty()) {
+            int saveCount = canvas.save();
+            canvas.concat(mViewMatrix);
+            float scale = getScale();
+            for (PendingShape pending : mPending) {
+                ShapePainter.draw(pending.mShape, canvas, mPaints, scale);
+            }
+            for (Curve remote : mRemoteStrokes.getStrokes()) {
+                ShapePainter.draw(remote, canvas, mPaints);
+            }
+            if (mCurrentShape != null) {
+                ShapePainter.draw(mCurrentShape, canvas, mPaints);
+            }
+            canvas.restoreToCount(saveCount);
+        }
+
+        if (mSelected != null) {
+            // рамка в экранных координатах, чтобы толщина не зависела от масштаба
+            mSelected.getBounds(mShapeDirty);
+            ShapePainter.toRectF(mShapeDirty, mScreenDirty);
+            mViewMatrix.mapRect(mScreenDirty);
+            canvas.drawRect(mScreenDirty, mSelectionPaint);
+        }
+
+        Metrics.get().onFrameDrawn(System.nanoTime() - start,
+                runtime.totalMemory() - runtime.freeMemory() - heapBefore);
+        return complete;
+    }
+
+    @Override
+    public void touchDown(int pointerId, float x, float y) {
+        if (mDrawType == DrawType.ERASE) {
+            mStrokePointerId = pointerId;
+            eraseAt(x, y);
+            return;
+        }
+        if (mDrawType == DrawType.SELECT) {
+            float[] point = toWorld(x, y);
+            select(mScene.hitTest(point[0], point[1], mHitSlop / getScale()));
+            return;
+        }
+        float[] point = toWorld(x, y);
+        mCurrentShape = mDrawType.createShape(point[0], point[1], mCurrentColor);
+        if (mCurrentShape instanceof Curve) {
+            ((Curve) mCurrentShape).setMinDistance(mMinPointDistance / getScale());
+        }
+        mStrokePointerId = pointerId;
+        if (mSession != null && mCurrentShape instanceof Curve) {
+            mSessionStroke = mSession.beginStroke(mCurrentColor, mCurrentShape.getStrokeWidth(),
+                    point[0], point[1]);
+            mSentPointCount = 1;
+        }
+        if (mCurrentShape instanceof Polygon) {
+            ((Polygon) mCurrentShape).pointerDown(pointerId, point[0], point[1], mShapeDirty);
+        } else {
+            mCurrentShape.getBounds(mShapeDirty);
+        }
+        markDirty(mShapeDirty);
+    }
+
+    @Override
+    public void pointerDown(int pointerId, float x, float y) {
+        if (mCurrentShape instanceof Polygon) {
+            float[] point = toWorld(x, y);
+            if (((Polygon) mCurrentShape).pointerDown(pointerId, point[0], point[1], mShapeDirty)) {
+                markDirty(mShapeDirty);
+            }
+        }
+    }
+
+    @Override
+    public void touchMove(int pointerId, float x, float y) {
+        if (mDrawType == DrawType.ERASE && pointerId == mStrokePointerId) {
+            eraseAt(x, y);
+            return;
+        }
+        if (mCurrentShape == null) {
+            return;
+        }
+        float[] point = toWorld(x, y);
+        if (mCurrentShape instanceof Polygon) {
+            if (!((Polygon) mCurrentShape).pointerMove(pointerId, point[0], point[1], mShapeDirty)) {
+                return;
+            }
+        } else if (pointerId == mStrokePointerId) {
+            mCurrentShape.dragTo(point[0], point[1], mShapeDirty);
+            sendNewPoints();
+        } else {
+            return;
+        }
+        markDirty(mShapeDirty);
+    }
+
+    @Override
+    public void pointerUp(int pointerId, float x, float y) {
+        if (mCurrentShape instanceof Polygon) {
+            touchMove(pointerId, x, y);
+            ((Polygon) mCurrentShape).pointerUp(pointerId);
+        } else if (mCurrentShape != null && pointerId == mStrokePointerId) {
+            // палец, который рисовал, поднят, остальные фигуре не нужны
+            touchUp(pointerId, x, y);
+        }
+    }
+
+    @Override
+    public void touchUp(int pointerId, float x, float y) {
+        if (mCurrentShape == null) {
+            mStrokePointerId = -1;
+            return;
+        }
+        touchMove(pointerId, x, y);
+        commitShape();
+    }
+
+    @Override
+    public void touchCancel() {
+        if (mCurrentShape != null) {
+            commitShape();
+        }
+        mStrokePointerId = -1;
+    }
+
+    @Override
+    public void pan(float dx, float dy) {
+        mViewMatrix.postTranslate(dx, dy);
+        mViewMatrix.invert(mInverseMatrix);
+        mDirtyAll = true;
+        notifyViewChanged();
+    }
+
+    @Override
+    public void zoom(float factor, float focusX, float focusY) {
+        float scale = getScale();
+        factor = Math.max(MIN_SCALE / scale, Math.min(MAX_SCALE / scale, factor));
+        mViewMatrix.postScale(factor, factor, focusX, focusY);
+        mViewMatrix.invert(mInverseMatrix);
+        mDirtyAll = true;
+        notifyViewChanged();
+    }
+
+    /**
+     * Removes every shape. Can be undone. Also sent to the session.
+     */
+    public void clear() {
+        flushPending();
+        dropCurrentShape();
+        select(null);
+        if (mSession != null) {
+            mSession.sendClear();
+        }
+        if (mScene.size() > 0) {
+            mHistory.clearScene();
+        }
+        mDirtyAll = true;
+    }
+
+    /**
+     * Removes the shape picked with {@link DrawType#SELECT}. Can be undone.
+     *
+     * @return false if nothing is selected
+     */
+    public boolean deleteSelected() {
+        if (mSelected == null) {
+            return false;
+        }
+        flushPending();
+        Shape selected = mSelected;
+        select(null);
+        removeShape(selected);
+        return true;
+    }
+
+    /**
+     * Reverts the last command; a shape being drawn is dropped first.
+     *
+     * @return false if there is nothing to undo
+     */
+    public boolean undo() {
+        flushPending();
+        dropCurrentShape();
+        select(null);
+        Command command = mHistory.undo();
+        markDirty(command);
+        return command != null;
+    }
+
+    /**
+     * @return false if there is nothing to redo
+     */
+    public boolean redo() {
+        flushPending();
+        select(null);
+        Command command = mHistory.redo();
+        markDirty(command);
+        return command != null;
+    }
+
+    public boolean canUndo() {
+        return mHistory.canUndo();
+    }
+
+    public boolean canRedo() {
+        return mHistory.canRedo();
+    }
+
+    /**
+     * Memory the undo checkpoints may take, in bytes.
+     */
+    public void setCheckpointBudget(int maxBytes) {
+        mTileRenderer.setCheckpointBudget(maxBytes);
+    }
+
+    /**
+     * How many commands apart the undo checkpoints are taken; 0 turns them off.
+     */
+    public void setCheckpointInterval(int interval) {
+        mHistory.setCheckpointInterval(interval);
+    }
+
+    /**
+     * Replaces the scene with already committed shapes, bottom first.
+     */
+    public void load(List<? extends Shape> shapes) {
+        mPending.clear();
+        mCurrentShape = null;
+        mSelected = null;
+        // загрузка не изменение: слушатель о ней не узнаёт, отменить её нельзя
+        mScene.setListener(null);
+        mScene.clear();
+        for (int i = 0; i < shapes.size(); i++) {
+            mScene.add(shapes.get(i));
+        }
+        mScene.setListener(mListener);
+        mHistory.reset();
+        mTileRenderer.clear();
+        mDirtyAll = true;
+    }
+
+    /**
+     * Sets the view transform: uniform scale, then translation.
+     */
+    public void setView(float scale, float translateX, float translateY) {
+        scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+        mViewMatrix.setScale(scale, scale);
+        mViewMatrix.postTranslate(translateX, translateY);
+        mViewMatrix.invert(mInverseMatrix);
+        mDirtyAll = true;
+    }
+
+    /**
+     * Listener is called on the thread that drives the controller.
+     */
+    public void setListener(Listener listener) {
+        mListener = listener;
+        mScene.setListener(listener);
+    }
+
+    /**
+     * Moves the screen area changed since the previous call into {@code out}, clipped to
+     * the view. Pan, zoom and clear mark the whole view. Only {@link DrawSurfaceView} redraws
+     * just this area; a hardware-accelerated {@link DrawView} always redraws everything.
+     *
+     * @return false if nothing has to be redrawn
+     */
+    public boolean takeDirtyRect(Rect out, int width, int height) {
+        commitSimplified();
+        applyRemoteOps();
+        boolean dirty = true;
+        if (mDirtyAll) {
+            out.set(0, 0, width, height);
+        } else if (mDirty.isEmpty()) {
+            dirty = false;
+        } else {
+            mDirty.roundOut(out);
+            out.inset(-DIRTY_MARGIN, -DIRTY_MARGIN);
+            dirty = out.intersect(0, 0, width, height);
+        }
+        mDirty.setEmpty();
+        mDirtyAll = false;
+        return dirty;
+    }
+
+    public void setDrawType(DrawType drawType) {
+        mDrawType = drawType;
+        if (drawType != DrawType.SELECT) {
+            select(null);
+        }
+    }
+
+    public void setPaintColor(int color) {
+        mCurrentColor = color;
+    }
+
+    public void setMinPointDistance(float minPointDistance) {
+        mMinPointDistance = minPointDistance;
+    }
+
+    /**
+     * How far from a shape, in screen pixels, the eraser and selection still hit it.
+     */
+    public void setHitSlop(float hitSlop) {
+        mHitSlop = hitSlop;
+    }
+
+    /**
+     * @return the shape picked with {@link DrawType#SELECT} or null
+     */
+    public Shape getSelected() {
+        return mSelected;
+    }
+
+    public Scene getScene() {
+        return mScene;
+    }
+
+    /**
+     * Committed shapes, bottom first, including those still being simplified. Shapes are
+     * not copied: once committed they do not change, so the list can be read on any thread.
+     */
+    public List<Shape> snapshot() {
+        List<Shape> shapes = new ArrayList<>(mScene.size() + mPending.size());
+        for (Shape shape : mScene) {
+            shapes.add(shape);
+        }
+        for (PendingShape pending : mPending) {
+            Shape result = pending.mResult;
+            shapes.add(result != null ? result : pending.mShape);
+        }
+        return shapes;
+    }
+
+    public float getScale() {
+        mViewMatrix.getValues(mMatrixValues);
+        return mMatrixValues[Matrix.MSCALE_X];
+    }
+
+    /**
+     * Tolerance of stroke simplification in screen pixels; 0 keeps every sample.
+     */
+    public void setSimplifyTolerance(float tolerance) {
+        mSimplifyTolerance = tolerance;
+    }
+
+    /**
+     * Joins a shared drawing: strokes drawn from now on are sent to {@code session}, and ops
+     * it received are applied on {@link #takeDirtyRect}. The session's listener should ask
+     * the view for a frame. Undo, the eraser and the view stay local. Null leaves the session;
+     * closing it is up to the caller.
+     */
+    public void setSession(StrokeSession session) {
+        endSessionStroke();
+        mSession = session;
+        mRemoteStrokes.clear();
+        mDirtyAll = true;
+    }
+
+    /**
+     * Called from a background thread when a simplified stroke is ready; the view should
+     * then call {@link #takeDirtyRect} and redraw on the controller's thread.
+     */
+    public void setFrameRequester(Runnable frameRequester) {
+        mFrameRequester = frameRequester;
+    }
+
+    private void commitShape() {
+        mCurrentShape.seal();
+        // seal() может дорисовать хвост кривой
+        mCurrentShape.getBounds(mShapeDirty);
+        markDirty(mShapeDirty);
+        if (mCurrentShape instanceof Curve) {
+            Metrics.get().onStrokeCommitted(((Curve) mCurrentShape).getPointCount());
+        }
+        if (mSessionStroke >= 0) {
+            endSessionStroke();
+        } else if (mSession != null) {
+            mSession.sendShape(mCurrentShape);
+        }
+        if (mCurrentShape instanceof Curve && mSimplifyTolerance > 0) {
+            simplify((Curve) mCurrentShape, mSimplifyTolerance / getScale());
+        } else {
+            addShape(mCurrentShape);
+        }
+        mCurrentShape = null;
+        mStrokePointerId = -1;
+    }
+
+    private void addShape(Shape shape) {
+        if (!mPending.isEmpty()) {
+            // встаёт в очередь за кривыми, чтобы не обогнать их по z-порядку
+            PendingShape pending = new PendingShape(shape);
+            pending.mResult = shape;
+            mPending.add(pending);
+        } else {
+            mHistory.addShape(shape);
+        }
+    }
+
+    // фигура бросается незавершённой; у остальных участников она просто заканчивается
+    private void dropCurrentShape() {
+        endSessionStroke();
+        mCurrentShape = null;
+        mStrokePointerId = -1;
+    }
+
+    // отправляет точки текущей кривой, принятые с прошлого раза; в кадр их соберёт сессия
+    private void sendNewPoints() {
+        if (mSessionStroke < 0) {
+            return;
+        }
+        PointBuffer points = ((Curve) mCurrentShape).getPoints();
+        for (int i = mSentPointCount; i < points.size(); i++) {
+            mSession.moveStroke(mSessionStroke, points.getX(i), points.getY(i));
+        }
+        mSentPointCount = points.size();
+    }
+
+    private void endSessionStroke() {
+        if (mSessionStroke < 0) {
+            return;
+        }
+        sendNewPoints();
+        mSession.endStroke(mSessionStroke);
+        mSessionStroke = -1;
+    }
+
+    private void applyRemoteOps() {
+        if (mSession == null) {
+            return;
+        }
+        StrokeOp op;
+        while ((op = mSession.poll()) != null) {
+            if (op.getType() == StrokeOp.TYPE_CLEAR) {
+                flushPending();
+                select(null);
+                mRemoteStrokes.clear();
+                if (mScene.size() > 0) {
+                    mHistory.clearScene();
+                }
+                mDirtyAll = true;
+                continue;
+            }
+            Shape finished = mRemoteStrokes.apply(op, mShapeDirty);
+            markDirty(mShapeDirty);
+            if (finished != null) {
+                addShape(finished);
+            }
+        }
+    }
+
+    // стирает верхнюю фигуру под пальцем; перерисовывается только её место
+    private void eraseAt(float x, float y) {
+        float[] point = toWorld(x, y);
+        Shape hit = mScene.hitTest(point[0], point[1], mHitSlop / getScale());
+        if (hit != null) {
+            removeShape(hit);
+        }
+    }
+
+    private void removeShape(Shape shape) {
+        mHistory.removeShape(shape);
+        shape.getBounds(mShapeDirty);
+        markDirty(mShapeDirty);
+    }
+
+    // рамка выделения рисуется поверх плиток, старую и новую надо перерисовать
+    private void select(Shape shape) {
+        if (shape == mSelected) {
+            return;
+        }
+        if (mSelected != null) {
+            mSelected.getBounds(mShapeDirty);
+            markDirty(mShapeDirty);
+        }
+        mSelected = shape;
+        if (shape != null) {
+            shape.getBounds(mShapeDirty);
+            markDirty(mShapeDirty);
+        }
+    }
+
+    private void simplify(final Curve curve, final float tolerance) {
+        final PendingShape pending = new PendingShape(curve);
+        mPending.add(pending);
+        final Runnable frameRequester = mFrameRequester;
+        SIMPLIFY_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                // кривая запечатана и больше не меняется, читать её точки отсюда безопасно
+                PointBuffer points = new PointBuffer(curve.getPointCount());
+                Simplifier.simplify(curve.getPoints(), tolerance, points);
+                Metrics.get().onStrokeSimplified(curve.getPointCount(), points.size());
+                pending.mResult = points.size() < curve.getPointCount()
+                        ? Curve.fromPoints(points, curve.getColor(), curve.getStrokeWidth())
+                        : curve;
+                if (frameRequester != null) {
+                    frameRequester.run();
+                }
+            }
+        });
+    }
+
+    // переносит в сцену готовые фигуры из начала очереди
+    private void commitSimplified() {
+        while (!mPending.isEmpty() && mPending.peekFirst().mResult != null) {
+            commitPending(mPending.pollFirst());
+        }
+    }
+
+    // переносит в сцену всю очередь; неупрощённые кривые уходят как есть
+    private void flushPending() {
+        while (!mPending.isEmpty()) {
+            commitPending(mPending.pollFirst());
+        }
+    }
+
+    private void commitPending(PendingShape pending) {
+        Shape result = pending.mResult;
+        Shape shape = result != null ? result : pending.mShape;
+        pending.mShape.getBounds(mShapeDirty);
+        markDirty(mShapeDirty);
+        mHistory.addShape(shape);
+    }
+
+    private void notifyViewChanged() {
+        if (mListener != null) {
+            mViewMatrix.getValues(mMatrixValues);
+            mListener.onViewChanged(mMatrixValues[Matrix.MSCALE_X],
+                    mMatrixValues[Matrix.MTRANS_X], mMatrixValues[Matrix.MTRANS_Y]);
+        }
+    }
+
+    private void markDirty(Command command) {
+        if (command == null) {
+            return;
+        }
+        if (command.getBounds(mShapeDirty)) {
+            markDirty(mShapeDirty);
+        } else {
+            mDirtyAll = true;
+        }
+    }
+
+    private void markDirty(Bounds world) {
+        if (mDirtyAll || world.isEmpty()) {
+            return;
+        }
+        ShapePainter.toRectF(world, mScreenDirty);
+        mViewMatrix.mapRect(mScreenDirty);
+        if (mDirty.isEmpty()) {
+            mDirty.set(mScreenDirty);
+        } else {
+            mDirty.union(mScreenDirty);
+        }
+    }
+
+    // переводит экранную точку в мировые координаты, результат в mTouchPoint
+    private float[] toWorld(float x, float y) {
+        mTouchPoint[0] = x;
+        mTouchPoint[1] = y;
+        mInverseMatrix.mapPoints(mTouchPoint);
+        return mTouchPoint;
+    }
+
+    private static class PendingShape {
+        final Shape mShape;
+        // упрощённая фигура; пишется фоновым потоком
+        volatile Shape mResult;
+
+        PendingShape(Shape shape) {
+            mShape = shape;
+        }
+    }
+
+    /**
+     * Scene changes, undo and redo included, plus changes of the view.
+     */
+    public interface Listener extends Scene.Listener {
+        void onViewChanged(float scale, float translateX, float translateY);
+    }
+}
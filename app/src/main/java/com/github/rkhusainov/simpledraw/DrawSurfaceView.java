@@ -0,0 +1,340 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import androidx.annotation.Nullable;
+
+import com.github.rkhusainov.simpledraw.io.StrokeSession;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Same drawing surface as {@link DrawView}, but the scene is rasterized on a dedicated render
+ * thread paced by its own {@link Choreographer}. The UI thread only copies touch samples
+ * into a {@link TouchEventQueue}, so input latency does not grow with the scene.
+ */
+public class DrawSurfaceView extends SurfaceView implements DrawingView, SurfaceHolder.Callback {
+    private static final int TOUCH_QUEUE_CAPACITY = 4096;
+
+    // трогать только из потока отрисовки, пока он запущен
+    private DrawController mController;
+
+    private TouchEventQueue mTouchQueue = new TouchEventQueue(TOUCH_QUEUE_CAPACITY);
+    private PanZoomDetector mPanZoomDetector;
+    private boolean mScrolls;
+
+    private volatile RenderThread mRenderThread;
+
+    private final Runnable mFrameRequester = new Runnable() {
+        @Override
+        public void run() {
+            RenderThread thread = mRenderThread;
+            if (thread != null) {
+                thread.requestFrame();
+            }
+        }
+    };
+
+    public DrawSurfaceView(Context context) {
+        this(context, null);
+    }
+
+    public DrawSurfaceView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        mController = new DrawController(DrawView.DEFAULT_MIN_POINT_DISTANCE_DP * density);
+        mController.setPaintColor(getResources().getColor(R.color.colorBlack));
+        mController.setSimplifyTolerance(DrawView.DEFAULT_SIMPLIFY_TOLERANCE_DP * density);
+        mController.setHitSlop(DrawView.DEFAULT_HIT_SLOP_DP * density);
+        mPanZoomDetector = new PanZoomDetector(context, mTouchQueue);
+        getHolder().addCallback(this);
+    }
+
+    @Override
+    public DrawController getController() {
+        return mController;
+    }
+
+    /**
+     * Swaps the controller. Only allowed while the render thread is stopped.
+     */
+    @Override
+    public void setController(DrawController controller) {
+        if (mRenderThread != null) {
+            throw new IllegalStateException("Render thread is running");
+        }
+        mController = controller;
+    }
+
+    @Override
+    public void setDrawType(final DrawType drawType) {
+        mScrolls = false;
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mController.setDrawType(drawType);
+            }
+        });
+    }
+
+    @Override
+    public void setPaintColor(final int color) {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mController.setPaintColor(color);
+            }
+        });
+    }
+
+    @Override
+    public void setScrolls(boolean scrolls) {
+        mScrolls = scrolls;
+    }
+
+    @Override
+    public void clear() {
+        mScrolls = false;
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mController.clear();
+            }
+        });
+    }
+
+    @Override
+    public void deleteSelected() {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mController.deleteSelected();
+            }
+        });
+    }
+
+    @Override
+    public void undo() {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mController.undo();
+            }
+        });
+    }
+
+    @Override
+    public void redo() {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mController.redo();
+            }
+        });
+    }
+
+    @Override
+    public void setSession(final StrokeSession session) {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                mController.setSession(session);
+            }
+        });
+    }
+
+    @Override
+    public void requestFrame() {
+        mFrameRequester.run();
+    }
+
+    @Override
+    public void snapshot(final SnapshotCallback callback) {
+        runOnRenderThread(new Runnable() {
+            @Override
+            public void run() {
+                callback.onSnapshot(mController.snapshot());
+            }
+        });
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        Metrics.get().onInput(event.getEventTime());
+        if (mScrolls) {
+            mPanZoomDetector.onTouchEvent(event);
+        } else if (!TouchInput.dispatch(event, mTouchQueue)) {
+            return super.onTouchEvent(event);
+        }
+
+        if (mRenderThread != null) {
+            mRenderThread.requestFrame();
+        }
+        return true;
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        startRendering();
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        if (mRenderThread != null) {
+            mRenderThread.setSize(width, height);
+        }
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        // после возврата из этого метода поверхность использовать нельзя
+        stopRendering();
+    }
+
+    /**
+     * Stops the render thread and waits for it to finish. Touch samples still in the queue
+     * are handed to the controller on the calling thread, so none are lost. Safe to call
+     * more than once.
+     */
+    public void stopRendering() {
+        RenderThread thread = mRenderThread;
+        if (thread == null) {
+            return;
+        }
+        mRenderThread = null;
+        thread.quitSafely();
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        mTouchQueue.drainTo(mController);
+    }
+
+    private void startRendering() {
+        if (mRenderThread != null) {
+            return;
+        }
+        mController.setFrameRequester(mFrameRequester);
+        mRenderThread = new RenderThread(getHolder());
+        mRenderThread.start();
+        mRenderThread.setSize(getWidth(), getHeight());
+        mRenderThread.requestFrame();
+    }
+
+    private void runOnRenderThread(Runnable command) {
+        if (mRenderThread == null) {
+            command.run();
+            return;
+        }
+        mRenderThread.post(command);
+    }
+
+    private class RenderThread extends HandlerThread implements Choreographer.FrameCallback {
+        private final SurfaceHolder mHolder;
+        private Handler mHandler;
+        private Choreographer mChoreographer;
+
+        private volatile int mWidth;
+        private volatile int mHeight;
+        // кадр уже заказан, повторно будить поток не нужно
+        private final AtomicBoolean mFrameRequested = new AtomicBoolean();
+        // следующий кадр рисуем целиком, а не только изменившуюся область
+        private final AtomicBoolean mRedrawAll = new AtomicBoolean(true);
+        private final Rect mDirty = new Rect();
+
+        private final Runnable mScheduleFrame = new Runnable() {
+            @Override
+            public void run() {
+                mChoreographer.postFrameCallback(RenderThread.this);
+            }
+        };
+
+        RenderThread(SurfaceHolder holder) {
+            super("DrawSurfaceView", Process.THREAD_PRIORITY_DISPLAY);
+            mHolder = holder;
+        }
+
+        @Override
+        public synchronized void start() {
+            super.start();
+            // getLooper() ждёт, пока поток подготовит свой Looper
+            mHandler = new Handler(getLooper());
+        }
+
+        @Override
+        protected void onLooperPrepared() {
+            mChoreographer = Choreographer.getInstance();
+        }
+
+        void setSize(int width, int height) {
+            mWidth = width;
+            mHeight = height;
+            mRedrawAll.set(true);
+            requestFrame();
+        }
+
+        void post(final Runnable command) {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    command.run();
+                    requestFrame();
+                }
+            });
+        }
+
+        void requestFrame() {
+            if (mFrameRequested.compareAndSet(false, true)) {
+                mHandler.post(mScheduleFrame);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            // сначала сбрасываем флаг: касания, пришедшие во время кадра, закажут следующий
+            mFrameRequested.set(false);
+            mTouchQueue.drainTo(mController);
+
+            boolean dirty = mController.takeDirtyRect(mDirty, mWidth, mHeight);
+            if (mRedrawAll.getAndSet(false)) {
+                mDirty.set(0, 0, mWidth, mHeight);
+            } else if (!dirty) {
+                return;
+            }
+            // вне mDirty поверхность сохраняет прошлый кадр, canvas обрезан по mDirty
+            Canvas canvas = mHolder.lockCanvas(mDirty);
+            if (canvas == null) {
+                return;
+            }
+            boolean complete;
+            try {
+                canvas.drawColor(Color.WHITE);
+                complete = mController.render(canvas, mWidth, mHeight);
+            } finally {
+                mHolder.unlockCanvasAndPost(canvas);
+            }
+            if (!complete) {
+                mRedrawAll.set(true);
+                requestFrame();
+            }
+        }
+    }
+}
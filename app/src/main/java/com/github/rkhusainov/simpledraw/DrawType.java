@@ -1,8 +1,55 @@
 package com.github.rkhusainov.simpledraw;
 
+import com.github.rkhusainov.simpledraw.model.Box;
+import com.github.rkhusainov.simpledraw.model.Curve;
+import com.github.rkhusainov.simpledraw.model.Line;
+import com.github.rkhusainov.simpledraw.model.Polygon;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
 public enum DrawType {
-    CURVE,
-    LINE,
-    BOX,
-    POLY
+    CURVE {
+        @Override
+        public Shape createShape(float x, float y, int color) {
+            return new Curve(x, y, color);
+        }
+    },
+    LINE {
+        @Override
+        public Shape createShape(float x, float y, int color) {
+            return new Line(x, y, color);
+        }
+    },
+    BOX {
+        @Override
+        public Shape createShape(float x, float y, int color) {
+            return new Box(x, y, color);
+        }
+    },
+    POLY {
+        @Override
+        public Shape createShape(float x, float y, int color) {
+            // вершины добавляет контроллер, по одной на палец
+            return new Polygon(color);
+        }
+    },
+    ERASE {
+        @Override
+        public Shape createShape(float x, float y, int color) {
+            // стирает фигуры целиком, своей не рисует
+            return null;
+        }
+    },
+    SELECT {
+        @Override
+        public Shape createShape(float x, float y, int color) {
+            return null;
+        }
+    };
+
+    /**
+     * Creates the shape this tool draws, starting at the point where the finger went down.
+     * A polygon starts empty, its vertices come from {@link Polygon#pointerDown}. Tools that
+     * work on existing shapes, like the eraser, return null.
+     */
+    public abstract Shape createShape(float x, float y, int color);
 }
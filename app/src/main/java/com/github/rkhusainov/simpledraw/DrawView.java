@@ -2,407 +2,184 @@ package com.github.rkhusainov.simpledraw;
 
 import android.content.Context;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.ColorFilter;
-import android.graphics.Paint;
-import android.graphics.Path;
-import android.graphics.PixelFormat;
-import android.graphics.PointF;
-import android.graphics.drawable.Drawable;
-import android.os.Parcel;
+import android.graphics.Rect;
 import android.util.AttributeSet;
-import android.util.Log;
-import android.view.GestureDetector;
 import android.view.MotionEvent;
 import android.view.View;
 
-import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
-import com.github.rkhusainov.simpledraw.model.Box;
-import com.github.rkhusainov.simpledraw.model.Curve;
-import com.github.rkhusainov.simpledraw.model.Line;
+import com.github.rkhusainov.simpledraw.io.StrokeSession;
+import com.github.rkhusainov.simpledraw.model.Scene;
 
-import java.util.ArrayList;
-import java.util.List;
+public class DrawView extends View implements DrawingView {
+    static final float DEFAULT_MIN_POINT_DISTANCE_DP = 1.5f;
+    static final float DEFAULT_SIMPLIFY_TOLERANCE_DP = 0.5f;
+    static final float DEFAULT_HIT_SLOP_DP = 8f;
 
-import static android.content.ContentValues.TAG;
+    private DrawController mController;
 
-public class DrawView extends View {
-    private Paint mBackgroundPaint = new Paint();
-
-    private Path mDrawPath = new Path();
-    private Paint mCurvePaint = new Paint();
-    private List<Curve> mCurves = new ArrayList<>();
-    private Curve mCurve;
-
-    private Paint mLinePaint = new Paint();
-    private List<Line> mLines = new ArrayList<>();
-    private Line mLine;
-
-    private Paint mBoxPaint = new Paint();
-    private List<Box> mBoxes = new ArrayList<>();
-    private Box mCurrentBox;
-
-    private int mCurrentColor = getContext().getResources().getColor(R.color.colorBlack);
-
-    private DrawType mDrawType = DrawType.CURVE;
-
-    private GestureDetector mGestureDetector;
+    private PanZoomDetector mPanZoomDetector;
     private boolean mScrolls;
 
-    private List<FigureDrawable> mFigures = new ArrayList<>();
-    private FigureDrawable mCurrentFigure;
+    private Rect mDirtyRect = new Rect();
+
+    // упрощённая кривая готова: забираем её в UI потоке
+    private final Runnable mFrameRequester = new Runnable() {
+        @Override
+        public void run() {
+            post(mInvalidateDirty);
+        }
+    };
+    private final Runnable mInvalidateDirty = new Runnable() {
+        @Override
+        public void run() {
+            invalidateDirty();
+        }
+    };
 
     public DrawView(Context context) {
         this(context, null);
-        setupPaint();
     }
 
     public DrawView(Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
-        setupPaint();
+        setup();
     }
 
-    private void setupPaint() {
-        mBackgroundPaint.setColor(Color.WHITE);
-
-        mCurvePaint.setColor(mCurrentColor);
-        mCurvePaint.setAntiAlias(true);
-        mCurvePaint.setStyle(Paint.Style.STROKE);
-        mCurvePaint.setStrokeWidth(10f);
+    private void setup() {
+        float density = getResources().getDisplayMetrics().density;
+        mController = new DrawController(DEFAULT_MIN_POINT_DISTANCE_DP * density);
+        mController.setPaintColor(getResources().getColor(R.color.colorBlack));
+        mController.setSimplifyTolerance(DEFAULT_SIMPLIFY_TOLERANCE_DP * density);
+        mController.setHitSlop(DEFAULT_HIT_SLOP_DP * density);
+        mController.setFrameRequester(mFrameRequester);
 
-        mLinePaint.setColor(mCurrentColor);
-        mLinePaint.setAntiAlias(true);
-        mLinePaint.setStyle(Paint.Style.STROKE);
-        mLinePaint.setStrokeWidth(10f);
-
-        mBoxPaint.setColor(mCurrentColor);
-        mBoxPaint.setAntiAlias(true);
-        mBoxPaint.setStyle(Paint.Style.FILL);
-
-        initGestureDetector();
+        mPanZoomDetector = new PanZoomDetector(getContext(), mController);
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        // кривые
-        curveDraw(canvas);
-        // прямые
-        lineDraw(canvas);
-        // прямоугольники
-        boxDraw(canvas);
-        // мультитач
-        polyDraw(canvas);
-    }
-
-    private void curveDraw(Canvas canvas) {
-        for (Curve curve : mCurves) {
-            mCurvePaint.setColor(curve.getColor());
-            canvas.drawPath(curve.getPath(), mCurvePaint);
+        if (!mController.render(canvas, getWidth(), getHeight())) {
+            // часть плиток ещё не готова, дорисуем в следующем кадре
+            postInvalidateOnAnimation();
         }
     }
 
-    private void lineDraw(Canvas canvas) {
-        for (Line line : mLines) {
-            float startX = line.getStart().x;
-            float startY = line.getStart().y;
-            float endX = line.getEnd().x;
-            float endY = line.getEnd().y;
-            mLinePaint.setColor(line.getColor());
-            canvas.drawLine(startX, startY, endX, endY, mLinePaint);
-        }
+    @Override
+    public DrawController getController() {
+        return mController;
     }
 
-    private void boxDraw(Canvas canvas) {
-        for (Box box : mBoxes) {
-            float left = Math.min(box.getCurrent().x, box.getOrigin().x);
-            float right = Math.max(box.getCurrent().x, box.getOrigin().x);
-            float top = Math.min(box.getCurrent().y, box.getOrigin().y);
-            float bottom = Math.max(box.getCurrent().y, box.getOrigin().y);
-            mBoxPaint.setColor(box.getColor());
-            canvas.drawRect(left, top, right, bottom, mBoxPaint);
-        }
+    @Override
+    public void setController(DrawController controller) {
+        mController = controller;
+        mController.setFrameRequester(mFrameRequester);
+        mPanZoomDetector = new PanZoomDetector(getContext(), mController);
+        invalidate();
     }
 
-    private void polyDraw(Canvas canvas) {
-        for (FigureDrawable figure : mFigures) {
-            figure.draw(canvas);
-        }
-        Log.d(TAG, "polyDraw: " + mFigures.size());
-        if (mCurrentFigure != null) {
-            mCurrentFigure.draw(canvas);
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        // контроллер мог достаться от другого вида
+        if (changedView == this && visibility == VISIBLE && mController != null) {
+            mController.setFrameRequester(mFrameRequester);
+            invalidateDirty();
         }
     }
 
+    @Override
     public void setDrawType(DrawType drawType) {
-        mDrawType = drawType;
+        mController.setDrawType(drawType);
+        // выбор инструмента выключает прокрутку
+        mScrolls = false;
     }
 
+    @Override
     public void setPaintColor(int color) {
-        mCurrentColor = color;
+        mController.setPaintColor(color);
     }
 
-    public void clear() {
-        mLines.clear();
-        mCurves.clear();
-        mBoxes.clear();
-        mScrolls = false;
-        mFigures.clear();
-        invalidate();
+    public void setMinPointDistance(float minPointDistance) {
+        mController.setMinPointDistance(minPointDistance);
     }
 
-    public void setScrolls(boolean scrolls) {
-        mScrolls = scrolls;
+    public void setSimplifyTolerance(float tolerance) {
+        mController.setSimplifyTolerance(tolerance);
     }
 
     @Override
-    public boolean onTouchEvent(MotionEvent event) {
-        if (mScrolls) {
-            mGestureDetector.onTouchEvent(event);
-        }
-
-        int action = event.getAction();
-        PointF currentPoint = new PointF(event.getX(), event.getY());
-
-        switch (mDrawType) {
-            case CURVE:
-                switch (action) {
-                    case MotionEvent.ACTION_DOWN:
-                        mDrawPath = new Path();
-                        mDrawPath.moveTo(currentPoint.x, currentPoint.y);
-                        break;
-                    case MotionEvent.ACTION_MOVE:
-                        mDrawPath.lineTo(currentPoint.x, currentPoint.y);
-                        mCurve = new Curve(mDrawPath, mCurrentColor);
-                        mCurves.add(mCurve);
-                    case MotionEvent.ACTION_CANCEL:
-                        break;
-                    default:
-                        return super.onTouchEvent(event);
-                }
-                break;
-
-            case LINE:
-                switch (action) {
-                    case MotionEvent.ACTION_DOWN:
-                        mLine = new Line(currentPoint, currentPoint, mCurrentColor);
-                        mLines.add(mLine);
-                        break;
-                    case MotionEvent.ACTION_MOVE:
-                        if (mLine != null) {
-                            mLine.setEnd(currentPoint);
-                        }
-                        break;
-                    case MotionEvent.ACTION_UP:
-                    case MotionEvent.ACTION_CANCEL:
-                        mLine = null;
-                        break;
-                    default:
-                        return super.onTouchEvent(event);
-                }
-                break;
-
-            case BOX:
-                switch (action) {
-                    case MotionEvent.ACTION_DOWN:
-                        mCurrentBox = new Box(currentPoint, mCurrentColor);
-                        mBoxes.add(mCurrentBox);
-                        break;
-                    case MotionEvent.ACTION_MOVE:
-                        if (mCurrentBox != null) {
-                            mCurrentBox.setCurrent(currentPoint);
-                        }
-                        break;
-                    case MotionEvent.ACTION_UP:
-                    case MotionEvent.ACTION_CANCEL:
-                        mCurrentBox = null;
-                        break;
-                    default:
-                        return super.onTouchEvent(event);
-                }
-                break;
-
-            case POLY:
-                switch (event.getActionMasked()) {
-                    case MotionEvent.ACTION_DOWN:
-                        mCurrentFigure = new FigureDrawable(mCurrentColor);
-                        currentPoint = mCurrentFigure.getPoint(0);
-                        break;
-
-                    case MotionEvent.ACTION_POINTER_DOWN:
-                        int pointerId = event.getPointerId(event.getActionIndex());
-                        currentPoint = mCurrentFigure.getPoint(pointerId);
-                        break;
-
-                    case MotionEvent.ACTION_MOVE:
-                        for (int i = 0; i < event.getPointerCount(); i++) {
-                            int pointId = event.getPointerId(i);
-                            mCurrentFigure.getPoint(pointId).x = event.getX(i);
-                            mCurrentFigure.getPoint(pointId).y = event.getY(i);
-                        }
-                        break;
-
-                    case MotionEvent.ACTION_UP:
-                        mFigures.add(mCurrentFigure);
-                        mCurrentFigure = null;
-                        break;
-                }
-
-                if (currentPoint != null) {
-                    currentPoint.x = event.getX(event.getActionIndex());
-                    currentPoint.y = event.getY(event.getActionIndex());
-                }
-        }
-
-        invalidate();
-        return true;
+    public void clear() {
+        mController.clear();
+        mScrolls = false;
+        invalidateDirty();
     }
 
-    private void initGestureDetector() {
-        mGestureDetector = new GestureDetector(getContext(), new GestureDetector.OnGestureListener() {
-            @Override
-            public boolean onDown(MotionEvent e) {
-                return false;
-            }
-
-            @Override
-            public void onShowPress(MotionEvent e) {
-
-            }
-
-            @Override
-            public boolean onSingleTapUp(MotionEvent e) {
-                return false;
-            }
-
-            @Override
-            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-
-                for (FigureDrawable figure : mFigures) {
-                    for (PointF point : figure.mPoints) {
-                        float x = point.x;
-                        float y = point.y;
-
-                        point.x = x - distanceX;
-                        point.y = y - distanceY;
-                    }
-                }
-
-                invalidate();
-                return true;
-            }
-
-            @Override
-            public void onLongPress(MotionEvent e) {
-
-            }
-
-            @Override
-            public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
-                return false;
-            }
-        });
+    @Override
+    public void deleteSelected() {
+        mController.deleteSelected();
+        invalidateDirty();
     }
 
-    public static class FigureDrawable extends Drawable {
-        private Paint mPaint;
-        private Paint mPolyPaint;
-
-        private Path mPolyPath;
-        private int mColor;
-        private float mLineWidth = 8f;
-        private List<PointF> mPoints = new ArrayList<>();
-
-        public FigureDrawable(int color) {
-            mColor = color;
-            initPaint();
-        }
-
-        protected FigureDrawable(Parcel in) {
-            mColor = in.readInt();
-            mLineWidth = in.readFloat();
-            mPoints = in.createTypedArrayList(PointF.CREATOR);
-        }
-
-        private void initPaint() {
-            mPaint = new Paint();
-            mPaint.setColor(mColor);
-            mPaint.setStyle(Paint.Style.FILL_AND_STROKE);
-            mPaint.setStrokeCap(Paint.Cap.ROUND);
-            mPaint.setStrokeWidth(mLineWidth);
-
-            mPolyPaint = new Paint(mPaint);
-            mPolyPaint.setStyle(Paint.Style.FILL);
-        }
-
-        @Override
-        public void draw(@NonNull Canvas canvas) {
-            switch (mPoints.size()) {
-                case 1:
-                    drawSinglePoint(mPoints.get(0), canvas);
-                    break;
-                case 2:
-                    Log.d(TAG, "draw: " + mPoints.size());
-                    drawLine(mPoints.get(0), mPoints.get(1), canvas);
-                    break;
-                default:
-                    drawPolyFigure(canvas);
-            }
-        }
-
-        public PointF getPoint(int index) {
-            while (index >= mPoints.size()) {
-                mPoints.add(new PointF());
-            }
+    @Override
+    public void undo() {
+        mController.undo();
+        invalidateDirty();
+    }
 
-            return mPoints.get(index);
-        }
+    @Override
+    public void redo() {
+        mController.redo();
+        invalidateDirty();
+    }
 
-        @Override
-        public void setAlpha(int alpha) {
-            mPaint.setAlpha(alpha);
-        }
+    @Override
+    public void setSession(StrokeSession session) {
+        mController.setSession(session);
+        invalidateDirty();
+    }
 
-        @Override
-        public void setColorFilter(@Nullable ColorFilter colorFilter) {
-            mPaint.setColorFilter(colorFilter);
-        }
+    @Override
+    public void requestFrame() {
+        mFrameRequester.run();
+    }
 
-        @Override
-        public int getOpacity() {
-            return PixelFormat.TRANSLUCENT;
-        }
+    @Override
+    public void snapshot(SnapshotCallback callback) {
+        callback.onSnapshot(mController.snapshot());
+    }
 
-        private void drawSinglePoint(PointF point, Canvas canvas) {
-            float x = point.x;
-            float y = point.y;
+    @Override
+    public void setScrolls(boolean scrolls) {
+        mScrolls = scrolls;
+    }
 
-            canvas.drawPoint(x, y, mPaint);
-        }
+    @VisibleForTesting
+    Scene getScene() {
+        return mController.getScene();
+    }
 
-        private void drawLine(PointF one, PointF two, Canvas canvas) {
-            canvas.drawLine(one.x, one.y, two.x, two.y, mPaint);
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        Metrics.get().onInput(event.getEventTime());
+        if (mScrolls) {
+            mPanZoomDetector.onTouchEvent(event);
+        } else if (!TouchInput.dispatch(event, mController)) {
+            return super.onTouchEvent(event);
         }
 
-        private void drawPolyFigure(Canvas canvas) {
-            if (mPolyPath == null) {
-                mPolyPath = new Path();
-            }
-
-            mPolyPath.reset();
-
-            for (PointF point : mPoints) {
-                if (mPolyPath.isEmpty()) {
-                    mPolyPath.moveTo(point.x, point.y);
-                } else {
-                    mPolyPath.lineTo(point.x, point.y);
-                }
-            }
+        invalidateDirty();
+        return true;
+    }
 
-            mPolyPath.close();
-            canvas.drawPath(mPolyPath, mPolyPaint);
+    // с аппаратным ускорением invalidate(Rect) перерисовывает вид целиком, так что частичная
+    // перерисовка есть только у DrawSurfaceView; здесь лишь пропускаем кадры без изменений
+    private void invalidateDirty() {
+        if (mController.takeDirtyRect(mDirtyRect, getWidth(), getHeight())) {
+            invalidate();
         }
     }
 }
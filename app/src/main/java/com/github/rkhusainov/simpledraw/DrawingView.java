@@ -0,0 +1,50 @@
+package com.github.rkhusainov.simpledraw;
+
+import com.github.rkhusainov.simpledraw.io.StrokeSession;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.util.List;
+
+/**
+ * What {@link MainActivity} needs from a view that draws, whichever thread it renders on.
+ */
+public interface DrawingView {
+
+    DrawController getController();
+
+    void setController(DrawController controller);
+
+    void setDrawType(DrawType drawType);
+
+    void setPaintColor(int color);
+
+    void setScrolls(boolean scrolls);
+
+    void clear();
+
+    void deleteSelected();
+
+    void undo();
+
+    void redo();
+
+    /**
+     * See {@link DrawController#setSession}.
+     */
+    void setSession(StrokeSession session);
+
+    /**
+     * Asks for a frame, e.g. when the session received something. May be called from any thread.
+     */
+    void requestFrame();
+
+    /**
+     * Takes {@link DrawController#snapshot()} on the thread that owns the controller and passes
+     * it to {@code callback} there.
+     */
+    void snapshot(SnapshotCallback callback);
+
+    interface SnapshotCallback {
+        void onSnapshot(List<Shape> shapes);
+    }
+}
@@ -0,0 +1,167 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.util.Log;
+
+import androidx.lifecycle.ViewModel;
+
+import com.github.rkhusainov.simpledraw.io.SceneJournal;
+import com.github.rkhusainov.simpledraw.io.StrokeSession;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Drawing state that outlives {@link MainActivity} across configuration changes: the
+ * controller with its scene, history and rendered tiles, the autosave journal and the shared
+ * session. After a rotation the first frame is drawn from the tiles already in memory. After
+ * process death only the scene comes back, from the journal named by
+ * {@link #getSceneName()}.
+ */
+public class DrawingViewModel extends ViewModel {
+    private static final String TAG = "DrawingViewModel";
+
+    private DrawController mController;
+    private String mSceneName;
+    // автосохранение: журнал операций поверх снимка сцены
+    private SceneJournal mSceneJournal;
+
+    private StrokeSession mSession;
+    // активити, которая сейчас на экране; после поворота её сменит новая
+    private volatile StrokeSession.Listener mSessionListener;
+
+    private final StrokeSession.Listener mSessionForwarder = new StrokeSession.Listener() {
+        @Override
+        public void onReceived() {
+            StrokeSession.Listener listener = mSessionListener;
+            if (listener != null) {
+                listener.onReceived();
+            }
+        }
+
+        @Override
+        public void onDisconnected(IOException error) {
+            StrokeSession.Listener listener = mSessionListener;
+            if (listener != null) {
+                listener.onDisconnected(error);
+            }
+        }
+    };
+
+    /**
+     * @return false until {@link #init} was called
+     */
+    public boolean isInitialized() {
+        return mController != null;
+    }
+
+    /**
+     * Takes over {@code controller} and loads the scene saved as {@code sceneName} in
+     * {@code dir} into it. Called once, on the UI thread.
+     */
+    public void init(DrawController controller, File dir, String sceneName) {
+        mController = controller;
+        mSceneName = sceneName;
+        mSceneJournal = new SceneJournal(dir, sceneName);
+        try {
+            controller.load(mSceneJournal.restore());
+        } catch (IOException e) {
+            Log.w(TAG, "Autosave is off", e);
+            mSceneJournal.close();
+            mSceneJournal = null;
+            return;
+        }
+        float[] view = new float[3];
+        if (mSceneJournal.getRestoredView(view)) {
+            controller.setView(view[0], view[1], view[2]);
+        }
+
+        // вызывается из потока, который рисует: UI или поток DrawSurfaceView
+        controller.setListener(new DrawController.Listener() {
+            @Override
+            public void onShapeAdded(Shape shape) {
+                mSceneJournal.add(shape);
+            }
+
+            @Override
+            public void onShapeInserted(Shape shape, int index) {
+                mSceneJournal.insert(index, shape);
+            }
+
+            @Override
+            public void onShapeRemoved(Shape shape, int index) {
+                mSceneJournal.remove(index);
+            }
+
+            @Override
+            public void onCleared() {
+                mSceneJournal.clear();
+            }
+
+            @Override
+            public void onViewChanged(float scale, float translateX, float translateY) {
+                mSceneJournal.setView(scale, translateX, translateY);
+            }
+        });
+    }
+
+    public DrawController getController() {
+        return mController;
+    }
+
+    /**
+     * Name of the scene file; all that has to be saved to find the drawing again.
+     */
+    public String getSceneName() {
+        return mSceneName;
+    }
+
+    /**
+     * Pushes journaled operations to the file system without waiting for them.
+     */
+    public void flush() {
+        if (mSceneJournal != null) {
+            mSceneJournal.flush();
+        }
+    }
+
+    public StrokeSession getSession() {
+        return mSession;
+    }
+
+    /**
+     * Keeps the session open across configuration changes; the caller hands it to the view.
+     */
+    public void setSession(StrokeSession session) {
+        mSession = session;
+    }
+
+    /**
+     * Listener to connect a {@link StrokeSession} with. It forwards to the one set with
+     * {@link #setSessionListener}, so the session does not hold on to a destroyed activity.
+     */
+    public StrokeSession.Listener getSessionForwarder() {
+        return mSessionForwarder;
+    }
+
+    public void setSessionListener(StrokeSession.Listener listener) {
+        mSessionListener = listener;
+    }
+
+    @Override
+    protected void onCleared() {
+        if (mController == null) {
+            return;
+        }
+        // поток отрисовки уже остановлен: поверхность уничтожается раньше активити
+        mController.setListener(null);
+        if (mSession != null) {
+            mController.setSession(null);
+            mSession.close();
+            mSession = null;
+        }
+        if (mSceneJournal != null) {
+            mSceneJournal.close();
+        }
+    }
+}
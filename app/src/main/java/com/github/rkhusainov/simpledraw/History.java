@@ -0,0 +1,259 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Scene;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Undo/redo over a linear log of {@link Command}s. Every {@code checkpointInterval} commands
+ * the tile renderer keeps copies of its tiles; a tile touched by undo is rebuilt from the
+ * nearest earlier copy plus the few commands after it, not from every shape below it.
+ */
+public class History implements TileRenderer.ReplaySource {
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 32;
+
+    private final Scene mScene;
+    private final TileRenderer mTileRenderer;
+    private final PaintCache mPaints;
+    private int mCheckpointInterval;
+
+    private List<Command> mCommands = new ArrayList<>();
+    // сколько команд из mCommands сейчас применено
+    private int mPosition;
+    private Bounds mBounds = new Bounds();
+
+    public History(Scene scene, TileRenderer tileRenderer, PaintCache paints, int checkpointInterval) {
+        mScene = scene;
+        mTileRenderer = tileRenderer;
+        mPaints = paints;
+        mCheckpointInterval = checkpointInterval;
+        tileRenderer.setReplaySource(this);
+    }
+
+    /**
+     * Applies a new command. Commands that were undone can no longer be redone.
+     */
+    public void execute(Command command) {
+        if (mPosition < mCommands.size()) {
+            mCommands.subList(mPosition, mCommands.size()).clear();
+            mTileRenderer.discardCheckpointsAfter(mPosition);
+        }
+        mCommands.add(command);
+        applyNext();
+    }
+
+    public void addShape(Shape shape) {
+        execute(new AddShape(shape));
+    }
+
+    public void removeShape(Shape shape) {
+        execute(new RemoveShape(shape));
+    }
+
+    public void clearScene() {
+        execute(new Clear());
+    }
+
+    public boolean canUndo() {
+        return mPosition > 0;
+    }
+
+    public boolean canRedo() {
+        return mPosition < mCommands.size();
+    }
+
+    /**
+     * @return the reverted command or null if there is nothing to undo
+     */
+    public Command undo() {
+        if (!canUndo()) {
+            return null;
+        }
+        Command command = mCommands.get(--mPosition);
+        command.revert(mScene);
+        // плитки пересоберутся из ближайшего снимка
+        if (command.getBounds(mBounds)) {
+            mTileRenderer.invalidate(mBounds);
+        } else {
+            mTileRenderer.clear();
+        }
+        return command;
+    }
+
+    /**
+     * @return the repeated command or null if there is nothing to redo
+     */
+    public Command redo() {
+        if (!canRedo()) {
+            return null;
+        }
+        return applyNext();
+    }
+
+    /**
+     * Forgets all commands, e.g. after the scene was replaced.
+     */
+    public void reset() {
+        mCommands.clear();
+        mPosition = 0;
+        mTileRenderer.discardCheckpointsAfter(-1);
+    }
+
+    public void setCheckpointInterval(int checkpointInterval) {
+        mCheckpointInterval = checkpointInterval;
+    }
+
+    @Override
+    public int getPosition() {
+        return mPosition;
+    }
+
+    @Override
+    public boolean replay(int from, Canvas canvas, PaintCache paints, Bounds area, float scale) {
+        for (int i = from; i < mPosition; i++) {
+            Command command = mCommands.get(i);
+            if (command.getBounds(mBounds) && !mBounds.intersects(area)) {
+                continue;
+            }
+            if (!command.replay(canvas, paints, area, scale)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Command applyNext() {
+        Command command = mCommands.get(mPosition++);
+        command.apply(mScene);
+        mTileRenderer.apply(command, mPaints);
+        if (mCheckpointInterval > 0 && mPosition % mCheckpointInterval == 0) {
+            mTileRenderer.checkpoint(mPosition);
+        }
+        return command;
+    }
+
+    /**
+     * Puts a committed shape on top of the scene.
+     */
+    public static class AddShape implements Command {
+        private final Shape mShape;
+
+        public AddShape(Shape shape) {
+            mShape = shape;
+        }
+
+        public Shape getShape() {
+            return mShape;
+        }
+
+        @Override
+        public void apply(Scene scene) {
+            scene.add(mShape);
+        }
+
+        @Override
+        public void revert(Scene scene) {
+            scene.remove(mShape);
+        }
+
+        @Override
+        public boolean getBounds(Bounds out) {
+            mShape.getBounds(out);
+            return true;
+        }
+
+        @Override
+        public boolean replay(Canvas canvas, PaintCache paints, Bounds area, float scale) {
+            ShapePainter.draw(mShape, canvas, paints, scale);
+            return true;
+        }
+    }
+
+    /**
+     * Takes one shape out of the scene; undo puts it back at the same depth. Cannot be
+     * replayed: tiles repaint the shape's bounds from the scene instead.
+     */
+    public static class RemoveShape implements Command {
+        private final Shape mShape;
+        private int mIndex;
+
+        public RemoveShape(Shape shape) {
+            mShape = shape;
+        }
+
+        public Shape getShape() {
+            return mShape;
+        }
+
+        /**
+         * @return position the shape had before it was removed, counted from the bottom
+         */
+        public int getIndex() {
+            return mIndex;
+        }
+
+        @Override
+        public void apply(Scene scene) {
+            mIndex = scene.indexOf(mShape);
+            scene.remove(mShape);
+        }
+
+        @Override
+        public void revert(Scene scene) {
+            scene.insert(mIndex, mShape);
+        }
+
+        @Override
+        public boolean getBounds(Bounds out) {
+            mShape.getBounds(out);
+            return true;
+        }
+
+        @Override
+        public boolean replay(Canvas canvas, PaintCache paints, Bounds area, float scale) {
+            return false;
+        }
+    }
+
+    /**
+     * Removes every shape; undo puts them back in the same order.
+     */
+    public static class Clear implements Command {
+        private List<Shape> mShapes = new ArrayList<>();
+
+        @Override
+        public void apply(Scene scene) {
+            mShapes.clear();
+            for (Shape shape : scene) {
+                mShapes.add(shape);
+            }
+            scene.clear();
+        }
+
+        @Override
+        public void revert(Scene scene) {
+            for (int i = 0; i < mShapes.size(); i++) {
+                scene.add(mShapes.get(i));
+            }
+            mShapes.clear();
+        }
+
+        @Override
+        public boolean getBounds(Bounds out) {
+            return false;
+        }
+
+        @Override
+        public boolean replay(Canvas canvas, PaintCache paints, Bounds area, float scale) {
+            canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+            return true;
+        }
+    }
+}
@@ -1,18 +1,58 @@
 package com.github.rkhusainov.simpledraw;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.ImageButton;
+import android.widget.Toast;
+
+import com.github.rkhusainov.simpledraw.io.StrokeSession;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
+    private static final String TAG = "MainActivity";
+    private static final String SCENE_NAME = "scene";
+    // в Bundle только ссылка на файл сцены и выбор инструмента, сама сцена туда не влезет
+    private static final String KEY_SCENE_NAME = "scene_name";
+    private static final String KEY_DRAW_TYPE = "draw_type";
+    private static final String KEY_PAINT_COLOR = "paint_color";
+    private static final String KEY_SURFACE = "surface";
+    private static final String METRICS_FILE_NAME = "metrics.txt";
+    private static final String EXPORT_NAME = "drawing";
+    private static final float EXPORT_SCALE = 1f;
+    private static final int EXPORT_BACKGROUND = 0xFFFFFFFF;
+    // точки штриха копятся не дольше кадра
+    private static final int SESSION_FRAME_MS = 16;
+
+    // экспорт идёт по одному, сам экспорт распараллеливает отрисовку
+    private static final ExecutorService EXPORT_EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final ExecutorService SESSION_EXECUTOR = Executors.newSingleThreadExecutor();
 
     private Button mCurveButton;
     private Button mLineButton;
     private Button mBoxButton;
     private Button mPolyButton;
+    private Button mEraseButton;
+    private Button mSelectButton;
     private Button mRedColorButton;
     private Button mBlackColorButton;
     private Button mGreenColorButton;
@@ -23,6 +63,15 @@ public class MainActivity extends AppCompatActivity {
     private Button mPinkColorButton;
     private ImageButton mClearImageButton;
     private DrawView mDrawView;
+    private DrawSurfaceView mDrawSurfaceView;
+    // вид, который сейчас на экране
+    private DrawingView mDrawingView;
+
+    // сцена, история, плитки и сессия переживают поворот здесь
+    private DrawingViewModel mModel;
+    private DrawType mDrawType = DrawType.CURVE;
+    private int mPaintColor;
+    private boolean mConnecting;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -30,8 +79,62 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
 
         mDrawView = findViewById(R.id.draw_view);
+        mDrawSurfaceView = findViewById(R.id.draw_surface_view);
+        mDrawingView = mDrawView;
+        mPaintColor = getResources().getColor(R.color.colorBlack);
+
+        mModel = new ViewModelProvider(this, new ViewModelProvider.NewInstanceFactory())
+                .get(DrawingViewModel.class);
+        boolean retained = mModel.isInitialized();
+        if (!retained) {
+            // первый запуск или процесс был убит: сцену читаем из файла
+            String sceneName = savedInstanceState != null ? savedInstanceState.getString(KEY_SCENE_NAME) : null;
+            mModel.init(mDrawView.getController(), getFilesDir(), sceneName != null ? sceneName : SCENE_NAME);
+        }
+        // оба вида рисуют одну и ту же сцену; после поворота - с уже готовыми плитками
+        DrawController controller = mModel.getController();
+        mDrawView.setController(controller);
+        mDrawSurfaceView.setController(controller);
+        mModel.setSessionListener(new SessionListener());
 
         buttonInit();
+        if (savedInstanceState != null) {
+            mDrawType = DrawType.valueOf(savedInstanceState.getString(KEY_DRAW_TYPE));
+            mPaintColor = savedInstanceState.getInt(KEY_PAINT_COLOR);
+            if (!retained) {
+                // удержанный контроллер и так помнит инструмент
+                controller.setDrawType(mDrawType);
+                controller.setPaintColor(mPaintColor);
+            }
+            if (savedInstanceState.getBoolean(KEY_SURFACE)) {
+                toggleSurface();
+            }
+        }
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(KEY_SCENE_NAME, mModel.getSceneName());
+        outState.putString(KEY_DRAW_TYPE, mDrawType.name());
+        outState.putInt(KEY_PAINT_COLOR, mPaintColor);
+        outState.putBoolean(KEY_SURFACE, mDrawingView == mDrawSurfaceView);
+        // после этого процесс могут убить в любой момент
+        mModel.flush();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        mModel.flush();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // сначала останавливаем поток отрисовки: контроллер переходит к следующей активити
+        mDrawSurfaceView.stopRendering();
+        mModel.setSessionListener(null);
     }
 
     private void buttonInit() {
@@ -39,11 +142,64 @@ public class MainActivity extends AppCompatActivity {
         mLineButton = findViewById(R.id.btn_line);
         mBoxButton = findViewById(R.id.btn_box);
         mPolyButton = findViewById(R.id.btn_poly);
+        mEraseButton = findViewById(R.id.btn_erase);
+        mSelectButton = findViewById(R.id.btn_select);
 
         findViewById(R.id.scroll_button).setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View v) {
-                mDrawView.setScrolls(true);
+                mDrawingView.setScrolls(true);
+            }
+        });
+
+        findViewById(R.id.btn_surface).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                toggleSurface();
+            }
+        });
+
+        findViewById(R.id.btn_metrics).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                View overlay = findViewById(R.id.metrics_overlay);
+                overlay.setVisibility(overlay.getVisibility() == View.VISIBLE ? View.GONE : View.VISIBLE);
+            }
+        });
+
+        findViewById(R.id.btn_metrics).setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                dumpMetrics();
+                return true;
+            }
+        });
+
+        findViewById(R.id.btn_export).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                exportScene();
+            }
+        });
+
+        findViewById(R.id.btn_share).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                toggleSession();
+            }
+        });
+
+        findViewById(R.id.btn_undo).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                mDrawingView.undo();
+            }
+        });
+
+        findViewById(R.id.btn_redo).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                mDrawingView.redo();
             }
         });
 
@@ -61,89 +217,299 @@ public class MainActivity extends AppCompatActivity {
         mCurveButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                mDrawView.setDrawType(DrawType.CURVE);
+                setDrawType(DrawType.CURVE);
             }
         });
 
         mLineButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                mDrawView.setDrawType(DrawType.LINE);
+                setDrawType(DrawType.LINE);
             }
         });
 
         mBoxButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                mDrawView.setDrawType(DrawType.BOX);
+                setDrawType(DrawType.BOX);
             }
         });
 
         mPolyButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                mDrawView.setDrawType(DrawType.POLY);
+                setDrawType(DrawType.POLY);
+            }
+        });
+
+        mEraseButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                setDrawType(DrawType.ERASE);
+            }
+        });
+
+        mSelectButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                setDrawType(DrawType.SELECT);
+            }
+        });
+
+        findViewById(R.id.btn_delete).setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                mDrawingView.deleteSelected();
             }
         });
 
         mBlackColorButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                mDrawView.setPaintColor(getResources().getColor(R.color.colorBlack));
+                setPaintColor(getResources().getColor(R.color.colorBlack));
             }
         });
 
         mRedColorButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                mDrawView.setPaintColor(getResources().getColor(R.color.colorRed));
+                setPaintColor(getResources().getColor(R.color.colorRed));
             }
         });
 
         mGreenColorButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                mDrawView.setPaintColor(getResources().getColor(R.color.colorGreen));
+                setPaintColor(getResources().getColor(R.color.colorGreen));
             }
         });
 
         mClearImageButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                mDrawView.clear();
+                mDrawingView.clear();
             }
         });
 
         mBlueColorButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                mDrawView.setPaintColor(getResources().getColor(R.color.colorBlue));
+                setPaintColor(getResources().getColor(R.color.colorBlue));
             }
         });
         mYellowColorButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                mDrawView.setPaintColor(getResources().getColor(R.color.colorYellow));
+                setPaintColor(getResources().getColor(R.color.colorYellow));
             }
         });
         mOrangeColorButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                mDrawView.setPaintColor(getResources().getColor(R.color.colorOrange));
+                setPaintColor(getResources().getColor(R.color.colorOrange));
             }
         });
         mMagentaColorButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                mDrawView.setPaintColor(getResources().getColor(R.color.colorMagenta));
+                setPaintColor(getResources().getColor(R.color.colorMagenta));
             }
         });
         mPinkColorButton.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                mDrawView.setPaintColor(getResources().getColor(R.color.colorPink));
+                setPaintColor(getResources().getColor(R.color.colorPink));
+            }
+        });
+
+    }
+
+    private void dumpMetrics() {
+        File dir = getExternalFilesDir(null);
+        File file = new File(dir != null ? dir : getFilesDir(), METRICS_FILE_NAME);
+        boolean failed;
+        try {
+            PrintWriter out = new PrintWriter(new FileWriter(file));
+            Metrics.get().dump(out);
+            out.close();
+            // PrintWriter не бросает исключений, ошибки записи надо спрашивать
+            failed = out.checkError();
+            if (failed) {
+                Log.w(TAG, "Cannot dump metrics to " + file);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot dump metrics", e);
+            failed = true;
+        }
+        if (failed) {
+            return;
+        }
+        Toast.makeText(this, file.getAbsolutePath(), Toast.LENGTH_SHORT).show();
+    }
+
+    private void exportScene() {
+        File dir = getExternalFilesDir(null);
+        final File directory = dir != null ? dir : getFilesDir();
+        mDrawingView.snapshot(new DrawingView.SnapshotCallback() {
+            @Override
+            public void onSnapshot(final List<Shape> shapes) {
+                EXPORT_EXECUTOR.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        String result;
+                        try {
+                            result = export(shapes, directory);
+                        } catch (Throwable e) {
+                            // OutOfMemoryError и прочее не должны тихо убить экспорт
+                            Log.w(TAG, "Export failed", e);
+                            result = getString(R.string.export_failed);
+                        }
+                        final String message = result;
+                        runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                Toast.makeText(getApplicationContext(), message, Toast.LENGTH_SHORT).show();
+                            }
+                        });
+                    }
+                });
             }
         });
+    }
+
+    // фоновый поток
+    private String export(List<Shape> shapes, File directory) {
+        SceneExporter exporter = new SceneExporter(shapes);
+        if (exporter.getBounds().isEmpty()) {
+            return getString(R.string.export_empty);
+        }
+        File png = new File(directory, EXPORT_NAME + ".png");
+        File svg = new File(directory, EXPORT_NAME + ".svg");
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(png));
+            try {
+                exporter.writePng(out, EXPORT_SCALE, EXPORT_BACKGROUND);
+            } finally {
+                out.close();
+            }
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(svg),
+                    StandardCharsets.UTF_8));
+            try {
+                exporter.writeSvg(writer);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot export to " + directory, e);
+            return getString(R.string.export_failed);
+        }
+        return png.getAbsolutePath();
+    }
+
+    private void setDrawType(DrawType drawType) {
+        mDrawType = drawType;
+        mDrawingView.setDrawType(drawType);
+    }
+
+    private void setPaintColor(int color) {
+        mPaintColor = color;
+        mDrawingView.setPaintColor(color);
+    }
+
+    private void toggleSession() {
+        StrokeSession session = mModel.getSession();
+        if (session != null) {
+            mDrawingView.setSession(null);
+            session.close();
+            mModel.setSession(null);
+            Toast.makeText(this, R.string.session_left, Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (mConnecting) {
+            return;
+        }
+        mConnecting = true;
+        final String host = getString(R.string.session_host);
+        final int port = Integer.parseInt(getString(R.string.session_port));
+        // подключение блокирует, в UI потоке сеть нельзя
+        SESSION_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                StrokeSession session = null;
+                try {
+                    session = StrokeSession.connect(host, port, SESSION_FRAME_MS, mModel.getSessionForwarder());
+                } catch (IOException e) {
+                    Log.w(TAG, "Cannot connect to " + host + ":" + port, e);
+                }
+                final StrokeSession connected = session;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        onSessionConnected(connected, host);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onSessionConnected(StrokeSession session, String host) {
+        mConnecting = false;
+        if (session == null) {
+            Toast.makeText(this, getString(R.string.session_failed, host), Toast.LENGTH_SHORT).show();
+            return;
+        }
+        if (isDestroyed()) {
+            session.close();
+            return;
+        }
+        mModel.setSession(session);
+        mDrawingView.setSession(session);
+        Toast.makeText(this, R.string.session_joined, Toast.LENGTH_SHORT).show();
+    }
+
+    private void toggleSurface() {
+        if (mDrawingView == mDrawView) {
+            mDrawView.setVisibility(View.GONE);
+            mDrawSurfaceView.setVisibility(View.VISIBLE);
+            mDrawingView = mDrawSurfaceView;
+        } else {
+            // контроллер снова принадлежит UI потоку только после остановки потока отрисовки
+            mDrawSurfaceView.stopRendering();
+            mDrawSurfaceView.setVisibility(View.GONE);
+            mDrawView.setVisibility(View.VISIBLE);
+            mDrawView.invalidate();
+            mDrawingView = mDrawView;
+        }
+    }
+
+    // вызывается в потоках сессии
+    private class SessionListener implements StrokeSession.Listener {
+        @Override
+        public void onReceived() {
+            runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    mDrawingView.requestFrame();
+                }
+            });
+        }
 
+        @Override
+        public void onDisconnected(final IOException error) {
+            Log.w(TAG, "Session lost", error);
+            runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    StrokeSession session = mModel.getSession();
+                    if (session == null || isDestroyed()) {
+                        return;
+                    }
+                    mDrawingView.setSession(null);
+                    session.close();
+                    mModel.setSession(null);
+                    Toast.makeText(getApplicationContext(), R.string.session_lost, Toast.LENGTH_SHORT).show();
+                }
+            });
+        }
     }
 }
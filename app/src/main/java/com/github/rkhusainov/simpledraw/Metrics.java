@@ -0,0 +1,249 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.os.SystemClock;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide counters and histograms for tuning. Everything is allocated up front,
+ * so recording never allocates. Safe to update from any thread.
+ */
+public final class Metrics {
+    private static final Metrics INSTANCE = new Metrics();
+
+    private final AtomicLong mSimplifiedStrokes = new AtomicLong();
+    private final AtomicLong mPointsBeforeSimplify = new AtomicLong();
+    private final AtomicLong mPointsAfterSimplify = new AtomicLong();
+
+    private final AtomicLong mShapesDrawn = new AtomicLong();
+    private final AtomicLong mShapesCulled = new AtomicLong();
+    // время самого раннего касания, которое ещё не попало на экран; 0 - такого нет
+    private final AtomicLong mPendingInputTime = new AtomicLong();
+
+    private final Histogram mFrameTime = new Histogram("frame draw time", "us");
+    private final Histogram mFrameAllocations = new Histogram("heap growth per frame", "bytes");
+    private final Histogram mTouchLatency = new Histogram("touch to draw", "ms");
+    private final Histogram mStrokePoints = new Histogram("points per stroke", "points");
+
+    private Metrics() {
+    }
+
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    public void onStrokeSimplified(int pointsBefore, int pointsAfter) {
+        mSimplifiedStrokes.incrementAndGet();
+        mPointsBeforeSimplify.addAndGet(pointsBefore);
+        mPointsAfterSimplify.addAndGet(pointsAfter);
+    }
+
+    public void onStrokeCommitted(int points) {
+        mStrokePoints.record(points);
+    }
+
+    /**
+     * @param drawn  shapes rasterized into a tile
+     * @param culled shapes of the scene the spatial index skipped for that tile
+     */
+    public void onTileRendered(int drawn, int culled) {
+        mShapesDrawn.addAndGet(drawn);
+        mShapesCulled.addAndGet(culled);
+    }
+
+    /**
+     * Marks input waiting to be drawn. Only the oldest undrawn event counts.
+     *
+     * @param eventTime {@link SystemClock#uptimeMillis()} based time of the event
+     */
+    public void onInput(long eventTime) {
+        mPendingInputTime.compareAndSet(0, eventTime);
+    }
+
+    /**
+     * @param heapGrowth bytes the heap grew by while drawing; negative if a GC ran
+     */
+    public void onFrameDrawn(long drawNanos, long heapGrowth) {
+        mFrameTime.record(drawNanos / 1000);
+        if (heapGrowth >= 0) {
+            mFrameAllocations.record(heapGrowth);
+        }
+        long inputTime = mPendingInputTime.getAndSet(0);
+        if (inputTime != 0) {
+            mTouchLatency.record(SystemClock.uptimeMillis() - inputTime);
+        }
+    }
+
+    public long getSimplifiedStrokes() {
+        return mSimplifiedStrokes.get();
+    }
+
+    /**
+     * Points kept by simplification per point drawn, 1 if nothing was simplified yet.
+     */
+    public float getSimplifyRatio() {
+        long before = mPointsBeforeSimplify.get();
+        return before > 0 ? (float) mPointsAfterSimplify.get() / before : 1f;
+    }
+
+    public long getShapesDrawn() {
+        return mShapesDrawn.get();
+    }
+
+    public long getShapesCulled() {
+        return mShapesCulled.get();
+    }
+
+    public Histogram getFrameTime() {
+        return mFrameTime;
+    }
+
+    public Histogram getFrameAllocations() {
+        return mFrameAllocations;
+    }
+
+    public Histogram getTouchLatency() {
+        return mTouchLatency;
+    }
+
+    public Histogram getStrokePoints() {
+        return mStrokePoints;
+    }
+
+    /**
+     * Short summary for the debug overlay, one metric per line.
+     */
+    public void appendSummary(StringBuilder out) {
+        out.append("frame us p50 ").append(mFrameTime.getPercentile(0.5f))
+                .append(" p99 ").append(mFrameTime.getPercentile(0.99f))
+                .append(" max ").append(mFrameTime.getMax()).append('\n');
+        out.append("touch ms p50 ").append(mTouchLatency.getPercentile(0.5f))
+                .append(" p99 ").append(mTouchLatency.getPercentile(0.99f)).append('\n');
+        out.append("alloc/frame p50 ").append(mFrameAllocations.getPercentile(0.5f))
+                .append(" max ").append(mFrameAllocations.getMax()).append('\n');
+        out.append("shapes drawn ").append(mShapesDrawn.get())
+                .append(" culled ").append(mShapesCulled.get()).append('\n');
+        out.append("points/stroke p50 ").append(mStrokePoints.getPercentile(0.5f))
+                .append(" kept ").append(Math.round(getSimplifyRatio() * 100)).append('%');
+    }
+
+    /**
+     * Writes every counter and histogram, buckets included.
+     */
+    public void dump(PrintWriter out) {
+        out.println("simplified strokes: " + mSimplifiedStrokes.get()
+                + ", points " + mPointsBeforeSimplify.get() + " -> " + mPointsAfterSimplify.get());
+        out.println("shapes drawn: " + mShapesDrawn.get() + ", culled: " + mShapesCulled.get());
+        mFrameTime.dump(out);
+        mFrameAllocations.dump(out);
+        mTouchLatency.dump(out);
+        mStrokePoints.dump(out);
+    }
+
+    public void reset() {
+        mSimplifiedStrokes.set(0);
+        mPointsBeforeSimplify.set(0);
+        mPointsAfterSimplify.set(0);
+        mShapesDrawn.set(0);
+        mShapesCulled.set(0);
+        mPendingInputTime.set(0);
+        mFrameTime.reset();
+        mFrameAllocations.reset();
+        mTouchLatency.reset();
+        mStrokePoints.reset();
+    }
+
+    /**
+     * Counts of non-negative values in power-of-two buckets: bucket {@code i} holds values
+     * below {@code 2^i}, the last one everything larger.
+     */
+    public static final class Histogram {
+        private static final int BUCKETS = 40;
+
+        private final String mName;
+        private final String mUnit;
+        private final AtomicLongArray mCounts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mSum = new AtomicLong();
+        private final AtomicLong mMax = new AtomicLong();
+
+        Histogram(String name, String unit) {
+            mName = name;
+            mUnit = unit;
+        }
+
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+            mCounts.incrementAndGet(bucket);
+            mCount.incrementAndGet();
+            mSum.addAndGet(value);
+            long max;
+            do {
+                max = mMax.get();
+            } while (value > max && !mMax.compareAndSet(max, value));
+        }
+
+        public long getCount() {
+            return mCount.get();
+        }
+
+        public long getMax() {
+            return mMax.get();
+        }
+
+        public long getMean() {
+            long count = mCount.get();
+            return count > 0 ? mSum.get() / count : 0;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given fraction of values, 0 if empty.
+         */
+        public long getPercentile(float fraction) {
+            long count = mCount.get();
+            if (count == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(count * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += mCounts.get(i);
+                if (seen >= target) {
+                    // верхняя граница корзины не больше реального максимума
+                    return Math.min(upperBound(i), mMax.get());
+                }
+            }
+            return mMax.get();
+        }
+
+        void dump(PrintWriter out) {
+            out.println(mName + " (" + mUnit + "): count " + mCount.get() + ", mean " + getMean()
+                    + ", max " + mMax.get());
+            for (int i = 0; i < BUCKETS; i++) {
+                long count = mCounts.get(i);
+                if (count > 0) {
+                    out.println("  < " + (upperBound(i) + 1) + ": " + count);
+                }
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                mCounts.set(i, 0);
+            }
+            mCount.set(0);
+            mSum.set(0);
+            mMax.set(0);
+        }
+
+        // наибольшее значение, попадающее в корзину
+        private static long upperBound(int bucket) {
+            return bucket == 0 ? 0 : (1L << bucket) - 1;
+        }
+    }
+}
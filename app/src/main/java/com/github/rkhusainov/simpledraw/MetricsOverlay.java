@@ -0,0 +1,62 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.widget.AppCompatTextView;
+
+/**
+ * Debug overlay with a summary of {@link Metrics}, refreshed while visible.
+ * Does not take touches, so drawing underneath keeps working.
+ */
+public class MetricsOverlay extends AppCompatTextView {
+    private static final long REFRESH_INTERVAL_MS = 500;
+
+    private StringBuilder mText = new StringBuilder();
+
+    private final Runnable mRefresh = new Runnable() {
+        @Override
+        public void run() {
+            mText.setLength(0);
+            Metrics.get().appendSummary(mText);
+            setText(mText);
+            postDelayed(this, REFRESH_INTERVAL_MS);
+        }
+    };
+
+    public MetricsOverlay(Context context) {
+        this(context, null);
+    }
+
+    public MetricsOverlay(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateRefresh();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updateRefresh();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        removeCallbacks(mRefresh);
+        super.onDetachedFromWindow();
+    }
+
+    // обновляемся только пока нас видно
+    private void updateRefresh() {
+        removeCallbacks(mRefresh);
+        if (isShown()) {
+            post(mRefresh);
+        }
+    }
+}
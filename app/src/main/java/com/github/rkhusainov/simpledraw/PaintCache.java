@@ -0,0 +1,110 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Paint;
+
+/**
+ * Interned paints keyed by color, style, stroke width and cap: shapes that look the same draw
+ * with the same {@link Paint} and nothing is set on a paint per shape. Lookups do not allocate.
+ * Paints handed out must not be modified. Not thread-safe, one cache per drawing thread.
+ */
+public class PaintCache {
+    // столько разных стилей в одном рисунке не бывает; если набралось, начинаем заново
+    private static final int MAX_SIZE = 1024;
+    private static final int FILL = 0;
+
+    private final int mFlags;
+
+    // открытая адресация, ключ разложен по массивам, чтобы поиск не создавал объектов
+    private int[] mColors;
+    private int[] mWidths;
+    private int[] mKinds;
+    private Paint[] mPaints;
+    private int mSize;
+
+    /**
+     * @param flags paint flags every paint gets, e.g. {@link Paint#ANTI_ALIAS_FLAG}
+     */
+    public PaintCache(int flags) {
+        mFlags = flags;
+        allocate(16);
+    }
+
+    public Paint fill(int color) {
+        return get(color, 0, FILL, null);
+    }
+
+    public Paint stroke(int color, float width, Paint.Cap cap) {
+        return get(color, Float.floatToIntBits(width), cap.ordinal() + 1, cap);
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    private Paint get(int color, int width, int kind, Paint.Cap cap) {
+        int mask = mPaints.length - 1;
+        int slot = hash(color, width, kind) & mask;
+        while (mPaints[slot] != null) {
+            if (mColors[slot] == color && mWidths[slot] == width && mKinds[slot] == kind) {
+                return mPaints[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (mSize >= MAX_SIZE) {
+            allocate(mPaints.length);
+        } else if ((mSize + 1) * 2 > mPaints.length) {
+            grow();
+        }
+        Paint paint = new Paint(mFlags);
+        paint.setColor(color);
+        if (kind == FILL) {
+            paint.setStyle(Paint.Style.FILL);
+        } else {
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeWidth(Float.intBitsToFloat(width));
+            paint.setStrokeCap(cap);
+        }
+        put(color, width, kind, paint);
+        return paint;
+    }
+
+    private void put(int color, int width, int kind, Paint paint) {
+        int mask = mPaints.length - 1;
+        int slot = hash(color, width, kind) & mask;
+        while (mPaints[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        mColors[slot] = color;
+        mWidths[slot] = width;
+        mKinds[slot] = kind;
+        mPaints[slot] = paint;
+        mSize++;
+    }
+
+    private void grow() {
+        int[] colors = mColors;
+        int[] widths = mWidths;
+        int[] kinds = mKinds;
+        Paint[] paints = mPaints;
+        allocate(paints.length * 2);
+        for (int i = 0; i < paints.length; i++) {
+            if (paints[i] != null) {
+                put(colors[i], widths[i], kinds[i], paints[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        mColors = new int[capacity];
+        mWidths = new int[capacity];
+        mKinds = new int[capacity];
+        mPaints = new Paint[capacity];
+        mSize = 0;
+    }
+
+    private static int hash(int color, int width, int kind) {
+        int h = (color * 31 + width) * 31 + kind;
+        return h ^ (h >>> 16);
+    }
+}
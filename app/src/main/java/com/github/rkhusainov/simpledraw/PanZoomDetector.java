@@ -0,0 +1,38 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.content.Context;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+
+/**
+ * Turns one-finger drags into pans and pinches into zooms.
+ */
+public class PanZoomDetector {
+    private GestureDetector mGestureDetector;
+    private ScaleGestureDetector mScaleGestureDetector;
+
+    public PanZoomDetector(Context context, final TouchInput.Callback callback) {
+        mGestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                callback.pan(-distanceX, -distanceY);
+                return true;
+            }
+        });
+
+        mScaleGestureDetector = new ScaleGestureDetector(context,
+                new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+                    @Override
+                    public boolean onScale(ScaleGestureDetector detector) {
+                        callback.zoom(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                        return true;
+                    }
+                });
+    }
+
+    public void onTouchEvent(MotionEvent event) {
+        mScaleGestureDetector.onTouchEvent(event);
+        mGestureDetector.onTouchEvent(event);
+    }
+}
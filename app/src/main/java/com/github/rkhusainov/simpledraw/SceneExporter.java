@@ -0,0 +1,244 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import com.github.rkhusainov.simpledraw.io.PngWriter;
+import com.github.rkhusainov.simpledraw.io.SvgWriter;
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports a snapshot of the scene at any size. PNG export cuts the image into bands of tiles,
+ * rasterizes the tiles on a pool with a thread per core and streams finished bands into the
+ * encoder, so at most two bands of pixels are in memory. The canvas has no edges, so the scale
+ * is lowered as needed to keep the image within {@link #MAX_WIDTH} by {@link #MAX_HEIGHT}.
+ * Blocking; call it off the UI thread.
+ */
+public class SceneExporter {
+    static final int TILE_WIDTH = 512;
+    static final int BAND_HEIGHT = 256;
+    // две полосы такой ширины - 16 МБ пикселей
+    public static final int MAX_WIDTH = 8192;
+    // высота на память не влияет, только на время
+    public static final int MAX_HEIGHT = 65536;
+    private static final float MARGIN = 16f;
+
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService RASTER_EXECUTOR = Executors.newFixedThreadPool(THREADS);
+
+    private final List<Shape> mShapes;
+    // границы фигур подряд: left, top, right, bottom; пул читает их без блокировок
+    private final float[] mShapeBounds;
+    private final Bounds mBounds = new Bounds();
+
+    /**
+     * @param shapes committed shapes, bottom first, e.g. {@link DrawController#snapshot()}
+     */
+    public SceneExporter(List<Shape> shapes) {
+        mShapes = shapes;
+        mShapeBounds = new float[shapes.size() * 4];
+        Bounds bounds = new Bounds();
+        for (int i = 0; i < shapes.size(); i++) {
+            shapes.get(i).getBounds(bounds);
+            mShapeBounds[i * 4] = bounds.left;
+            mShapeBounds[i * 4 + 1] = bounds.top;
+            mShapeBounds[i * 4 + 2] = bounds.right;
+            mShapeBounds[i * 4 + 3] = bounds.bottom;
+            mBounds.union(bounds);
+        }
+        if (!mBounds.isEmpty()) {
+            mBounds.inset(-MARGIN, -MARGIN);
+        }
+    }
+
+    /**
+     * Area of the drawing in world coordinates, empty if there is nothing to export.
+     */
+    public Bounds getBounds() {
+        return mBounds;
+    }
+
+    /**
+     * Largest scale up to {@code scale} at which the PNG fits within {@link #MAX_WIDTH} by
+     * {@link #MAX_HEIGHT}.
+     */
+    public float fitScale(float scale) {
+        // с запасом в пиксель на округление вверх
+        scale = Math.min(scale, (MAX_WIDTH - 1) / mBounds.width());
+        return Math.min(scale, (MAX_HEIGHT - 1) / mBounds.height());
+    }
+
+    public void writeSvg(Writer out) throws IOException {
+        SvgWriter writer = new SvgWriter(out, mBounds);
+        for (int i = 0; i < mShapes.size(); i++) {
+            writer.write(mShapes.get(i));
+        }
+        writer.finish();
+    }
+
+    /**
+     * @param scale      pixels per world unit, lowered to {@link #fitScale} if the image would
+     *                   be too large
+     * @param background color under the drawing, may be translucent
+     */
+    public void writePng(OutputStream out, float scale, int background) throws IOException {
+        if (mBounds.isEmpty()) {
+            throw new IllegalStateException("Nothing to export");
+        }
+        scale = fitScale(scale);
+        int width = (int) Math.ceil(mBounds.width() * scale);
+        int height = (int) Math.ceil(mBounds.height() * scale);
+        int bandCount = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+
+        BlockingQueue<Raster> rasters = new ArrayBlockingQueue<>(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            rasters.add(new Raster(Math.min(width, TILE_WIDTH), Math.min(height, BAND_HEIGHT)));
+        }
+        // пока кодируется одна полоса, пул рисует следующую
+        int[][] pixels = new int[2][width * Math.min(height, BAND_HEIGHT)];
+        PngWriter png = new PngWriter(out, width, height);
+        List<Future<?>> current = submitBand(0, width, height, scale, background, pixels[0], rasters);
+        List<Future<?>> next = null;
+        try {
+            for (int band = 0; band < bandCount; band++) {
+                next = band + 1 < bandCount
+                        ? submitBand(band + 1, width, height, scale, background, pixels[(band + 1) % 2], rasters)
+                        : null;
+                await(current);
+                int rows = Math.min(BAND_HEIGHT, height - band * BAND_HEIGHT);
+                png.writeRows(pixels[band % 2], 0, width, rows);
+                current = next;
+            }
+            current = null;
+            png.finish();
+        } finally {
+            cancel(current);
+            cancel(next);
+            for (Raster raster : rasters) {
+                raster.mBitmap.recycle();
+            }
+        }
+    }
+
+    private List<Future<?>> submitBand(int band, int width, int height, final float scale,
+                                       final int background, final int[] pixels,
+                                       final BlockingQueue<Raster> rasters) {
+        final int top = band * BAND_HEIGHT;
+        final int rows = Math.min(BAND_HEIGHT, height - top);
+        final int[] shapes = findShapes(top / scale + mBounds.top, (top + rows) / scale + mBounds.top);
+
+        List<Future<?>> tiles = new ArrayList<>();
+        for (int left = 0; left < width; left += TILE_WIDTH) {
+            final int tileLeft = left;
+            final int columns = Math.min(TILE_WIDTH, width - left);
+            final int stride = width;
+            tiles.add(RASTER_EXECUTOR.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    Raster raster = rasters.take();
+                    try {
+                        raster.render(shapes, tileLeft, top, scale, background);
+                        raster.mBitmap.getPixels(pixels, tileLeft, stride, 0, 0, columns, rows);
+                    } finally {
+                        rasters.add(raster);
+                    }
+                    return null;
+                }
+            }));
+        }
+        return tiles;
+    }
+
+    // индексы фигур, задевающих полосу мира [top, bottom), в порядке отрисовки
+    private int[] findShapes(float top, float bottom) {
+        int[] found = new int[mShapes.size()];
+        int count = 0;
+        for (int i = 0; i < mShapes.size(); i++) {
+            if (mShapeBounds[i * 4 + 1] < bottom && top < mShapeBounds[i * 4 + 3]) {
+                found[count++] = i;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(found, 0, result, 0, count);
+        return result;
+    }
+
+    private static void await(List<Future<?>> tiles) throws IOException {
+        try {
+            for (int i = 0; i < tiles.size(); i++) {
+                tiles.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Cannot render tile", e.getCause());
+        }
+    }
+
+    private static void cancel(List<Future<?>> tiles) {
+        if (tiles == null) {
+            return;
+        }
+        for (int i = 0; i < tiles.size(); i++) {
+            tiles.get(i).cancel(false);
+        }
+        // пиксели и растры ещё нужны начатым плиткам, ждём их
+        for (int i = 0; i < tiles.size(); i++) {
+            try {
+                tiles.get(i).get();
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    /**
+     * Tile bitmap with everything a pool thread needs to draw into it.
+     */
+    private class Raster {
+        final Bitmap mBitmap;
+        final Canvas mCanvas;
+        final PaintCache mPaints = new PaintCache(Paint.ANTI_ALIAS_FLAG);
+        final Path mPath = new Path();
+        final Bounds mArea = new Bounds();
+
+        Raster(int width, int height) {
+            mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mCanvas = new Canvas(mBitmap);
+        }
+
+        void render(int[] shapes, int left, int top, float scale, int background) {
+            mBitmap.eraseColor(background);
+            mArea.set(left, top, left + mBitmap.getWidth(), top + mBitmap.getHeight());
+            mArea.set(mArea.left / scale + mBounds.left, mArea.top / scale + mBounds.top,
+                    mArea.right / scale + mBounds.left, mArea.bottom / scale + mBounds.top);
+
+            int saveCount = mCanvas.save();
+            mCanvas.translate(-left, -top);
+            mCanvas.scale(scale, scale);
+            mCanvas.translate(-mBounds.left, -mBounds.top);
+            for (int index : shapes) {
+                if (mShapeBounds[index * 4] < mArea.right && mArea.left < mShapeBounds[index * 4 + 2]) {
+                    ShapePainter.drawDetached(mShapes.get(index), mCanvas, mPaints, mPath, scale);
+                }
+            }
+            mCanvas.restoreToCount(saveCount);
+        }
+    }
+}
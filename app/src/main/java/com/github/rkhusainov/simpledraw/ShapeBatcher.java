@@ -0,0 +1,169 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import com.github.rkhusainov.simpledraw.io.StoredShape;
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Box;
+import com.github.rkhusainov.simpledraw.model.Line;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Draws shapes in z-order, merging runs of opaque lines of one color and width into a single
+ * drawLines() call and runs of boxes of one color into a single path. A run also takes later
+ * shapes of the same paint from a short window ahead if nothing it skips over overlaps them,
+ * so z-order is kept wherever it is visible. Buffers are kept between calls and only grow.
+ * Not thread-safe.
+ */
+class ShapeBatcher {
+    private static final int KIND_NONE = 0;
+    private static final int KIND_LINE = 1;
+    private static final int KIND_BOX = 2;
+    // на сколько фигур вперёд ищем такие же для серии
+    private static final int LOOKAHEAD = 64;
+
+    private float[] mLines = new float[64];
+    private int mLineCount;
+    private Path mBoxes = new Path();
+    private int mBoxCount;
+
+    private int mKind = KIND_NONE;
+    private int mColor;
+    private float mStrokeWidth;
+    // первая фигура серии: если серия из одной фигуры, рисуем её как обычно
+    private Shape mFirst;
+
+    // фигуры, уже нарисованные в составе более ранней серии
+    private boolean[] mTaken = new boolean[64];
+    private Bounds mBounds = new Bounds();
+    // всё, что серия перепрыгнула; то, что его задевает, вперёд не переносим
+    private Bounds mSkipped = new Bounds();
+
+    /**
+     * Draws {@code shapes} in z-order; {@code scale} is passed on to
+     * {@link ShapePainter#draw(Shape, Canvas, PaintCache, float)}.
+     */
+    public void draw(List<Shape> shapes, Canvas canvas, PaintCache paints, float scale) {
+        int count = shapes.size();
+        if (mTaken.length < count) {
+            mTaken = new boolean[Math.max(count, mTaken.length * 2)];
+        } else {
+            Arrays.fill(mTaken, 0, count, false);
+        }
+        // пиксель запаса: сглаженные края соседних фигур смешиваются
+        float margin = 1 / scale;
+        for (int i = 0; i < count; i++) {
+            if (mTaken[i]) {
+                continue;
+            }
+            Shape shape = shapes.get(i);
+            Shape resolved = resolve(shape);
+            int kind = kindOf(resolved);
+            if (kind == KIND_NONE) {
+                ShapePainter.draw(shape, canvas, paints, scale);
+                continue;
+            }
+            mKind = kind;
+            mColor = resolved.getColor();
+            mStrokeWidth = resolved.getStrokeWidth();
+            mFirst = resolved;
+            add(resolved);
+            collect(shapes, i + 1, Math.min(count, i + 1 + LOOKAHEAD), margin);
+            flush(canvas, paints);
+        }
+    }
+
+    // добирает в текущую серию фигуры того же вида из [from, to)
+    private void collect(List<Shape> shapes, int from, int to, float margin) {
+        mSkipped.setEmpty();
+        for (int j = from; j < to; j++) {
+            if (mTaken[j]) {
+                continue;
+            }
+            Shape candidate = resolve(shapes.get(j));
+            candidate.getBounds(mBounds);
+            mBounds.inset(-margin, -margin);
+            if (sameRun(candidate) && (mSkipped.isEmpty() || !mSkipped.intersects(mBounds))) {
+                add(candidate);
+                mTaken[j] = true;
+            } else if (mSkipped.isEmpty()) {
+                mSkipped.set(mBounds);
+            } else {
+                mSkipped.union(mBounds);
+            }
+        }
+    }
+
+    private boolean sameRun(Shape shape) {
+        int kind = kindOf(shape);
+        return kind == mKind && shape.getColor() == mColor
+                && (kind != KIND_LINE || shape.getStrokeWidth() == mStrokeWidth);
+    }
+
+    private void add(Shape shape) {
+        if (mKind == KIND_LINE) {
+            addLine((Line) shape);
+        } else {
+            addBox((Box) shape);
+        }
+    }
+
+    private void addLine(Line line) {
+        if (mLineCount * 4 + 4 > mLines.length) {
+            float[] grown = new float[mLines.length * 2];
+            System.arraycopy(mLines, 0, grown, 0, mLineCount * 4);
+            mLines = grown;
+        }
+        System.arraycopy(line.getCoords(), 0, mLines, mLineCount * 4, 4);
+        mLineCount++;
+    }
+
+    private void addBox(Box box) {
+        mBoxes.addRect(box.getLeft(), box.getTop(), box.getRight(), box.getBottom(), Path.Direction.CW);
+        mBoxCount++;
+    }
+
+    private void flush(Canvas canvas, PaintCache paints) {
+        if (mKind == KIND_NONE) {
+            return;
+        }
+        if (mLineCount + mBoxCount == 1) {
+            ShapePainter.draw(mFirst, canvas, paints);
+        } else if (mKind == KIND_LINE) {
+            canvas.drawLines(mLines, 0, mLineCount * 4, paints.stroke(mColor, mStrokeWidth, Paint.Cap.BUTT));
+        } else {
+            canvas.drawPath(mBoxes, paints.fill(mColor));
+        }
+        mKind = KIND_NONE;
+        mFirst = null;
+        mLineCount = 0;
+        if (mBoxCount > 0) {
+            mBoxes.rewind();
+            mBoxCount = 0;
+        }
+    }
+
+    private static Shape resolve(Shape shape) {
+        return shape instanceof StoredShape ? ((StoredShape) shape).decode() : shape;
+    }
+
+    // полупрозрачные фигуры не сливаем: наложение внутри серии смешалось бы иначе
+    private static int kindOf(Shape shape) {
+        if (Color.alpha(shape.getColor()) != 0xFF) {
+            return KIND_NONE;
+        }
+        if (shape instanceof Line) {
+            return KIND_LINE;
+        }
+        if (shape instanceof Box) {
+            return KIND_BOX;
+        }
+        return KIND_NONE;
+    }
+}
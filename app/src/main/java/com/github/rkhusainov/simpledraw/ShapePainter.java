@@ -0,0 +1,277 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.util.LruCache;
+
+import com.github.rkhusainov.simpledraw.io.StoredShape;
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Box;
+import com.github.rkhusainov.simpledraw.model.Curve;
+import com.github.rkhusainov.simpledraw.model.CurveLod;
+import com.github.rkhusainov.simpledraw.model.Line;
+import com.github.rkhusainov.simpledraw.model.PointBuffer;
+import com.github.rkhusainov.simpledraw.model.Polygon;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+/**
+ * Android side of the model: draws shapes on a {@link Canvas}. Paths derived from a shape
+ * are kept in the shape's render cache, so a shape must not be drawn from two threads at once.
+ * <p>
+ * Long curves drawn small use a level of their {@link CurveLod} instead of every point. The
+ * pyramid belongs to the curve and keeps the paths built from its levels, so one LRU cache
+ * bounded in bytes decides whose levels and paths to drop.
+ */
+public final class ShapePainter {
+    // какую часть heap можно отдать под упрощённые копии кривых
+    private static final int LOD_CACHE_MEMORY_FRACTION = 32;
+    // на столько px упрощённая кривая может отойти от настоящей
+    private static final float LOD_MAX_ERROR = 1f;
+    private static final int LOD_ENTRY_BYTES = 64;
+    // путь уровня занимает примерно столько же, сколько его точки
+    private static final int LOD_PATH_FACTOR = 2;
+
+    // значение - размер уровней на момент put(): пирамида растёт и вне кэша, а вычитать
+    // при замене и вытеснении надо ровно то, что было прибавлено
+    private static final LruCache<CurveLod, Integer> LOD_CACHE = new LruCache<CurveLod, Integer>(
+            (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / LOD_CACHE_MEMORY_FRACTION)) {
+        @Override
+        protected int sizeOf(CurveLod lod, Integer byteCount) {
+            return byteCount * LOD_PATH_FACTOR + LOD_ENTRY_BYTES;
+        }
+
+        @Override
+        protected void entryRemoved(boolean evicted, CurveLod lod, Integer oldByteCount, Integer newByteCount) {
+            if (evicted) {
+                lod.clear();
+            }
+        }
+    };
+
+    private ShapePainter() {
+    }
+
+    /**
+     * Draws the shape at full detail with a paint from {@code paints}.
+     */
+    public static void draw(Shape shape, Canvas canvas, PaintCache paints) {
+        draw(shape, canvas, paints, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Draws the shape with no more detail than visible at {@code scale} pixels per world unit.
+     */
+    public static void draw(Shape shape, Canvas canvas, PaintCache paints, float scale) {
+        if (shape instanceof StoredShape) {
+            shape = ((StoredShape) shape).decode();
+        }
+        if (shape instanceof Curve) {
+            drawCurve((Curve) shape, canvas, paints, scale);
+        } else if (shape instanceof Line) {
+            float[] coords = ((Line) shape).getCoords();
+            canvas.drawLine(coords[0], coords[1], coords[2], coords[3],
+                    paints.stroke(shape.getColor(), shape.getStrokeWidth(), Paint.Cap.BUTT));
+        } else if (shape instanceof Box) {
+            Box box = (Box) shape;
+            canvas.drawRect(box.getLeft(), box.getTop(), box.getRight(), box.getBottom(),
+                    paints.fill(box.getColor()));
+        } else if (shape instanceof Polygon) {
+            drawPolygon((Polygon) shape, canvas, paints);
+        } else {
+            throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+    }
+
+    /**
+     * Same as {@link #draw}, but paths are built in {@code scratch} instead of the shape's
+     * render cache, so one shape can be drawn from several threads at once.
+     */
+    public static void drawDetached(Shape shape, Canvas canvas, PaintCache paints, Path scratch) {
+        if (shape instanceof StoredShape) {
+            shape = ((StoredShape) shape).decode();
+        }
+        if (shape instanceof Curve) {
+            Curve curve = (Curve) shape;
+            PointBuffer points = curve.getPoints();
+            scratch.rewind();
+            scratch.moveTo(points.getX(0), points.getY(0));
+            appendSmooth(scratch, points, 1, curve.getSmoothPointCount());
+            if (curve.isSealed()) {
+                appendTail(scratch, curve);
+            }
+            canvas.drawPath(scratch, paints.stroke(curve.getColor(), curve.getStrokeWidth(), Paint.Cap.BUTT));
+        } else if (shape instanceof Polygon && ((Polygon) shape).getPoints().size() > 2) {
+            buildPolygon(scratch, ((Polygon) shape).getPoints());
+            canvas.drawPath(scratch, paints.fill(shape.getColor()));
+        } else {
+            // остальные фигуры кэш не трогают
+            draw(shape, canvas, paints);
+        }
+    }
+
+    /**
+     * {@link #drawDetached(Shape, Canvas, PaintCache, Path)} with no more detail than visible
+     * at {@code scale} pixels per world unit.
+     */
+    public static void drawDetached(Shape shape, Canvas canvas, PaintCache paints, Path scratch, float scale) {
+        if (shape instanceof StoredShape) {
+            shape = ((StoredShape) shape).decode();
+        }
+        int level = shape instanceof Curve ? lodLevel((Curve) shape, scale) : -1;
+        if (level < 0) {
+            drawDetached(shape, canvas, paints, scratch);
+            return;
+        }
+        buildSimplified(scratch, lodPoints((Curve) shape, level));
+        canvas.drawPath(scratch, paints.stroke(shape.getColor(), shape.getStrokeWidth(), Paint.Cap.BUTT));
+    }
+
+    public static void toRectF(Bounds bounds, RectF out) {
+        out.set(bounds.left, bounds.top, bounds.right, bounds.bottom);
+    }
+
+    private static void drawCurve(Curve curve, Canvas canvas, PaintCache paints, float scale) {
+        CurvePath path = (CurvePath) curve.getRenderCache();
+        if (path == null) {
+            path = new CurvePath();
+            curve.setRenderCache(path);
+        }
+        Paint paint = paints.stroke(curve.getColor(), curve.getStrokeWidth(), Paint.Cap.BUTT);
+        int level = lodLevel(curve, scale);
+        if (level >= 0) {
+            PointBuffer points = lodPoints(curve, level);
+            CurveLod lod = curve.getLod();
+            Path lodPath = (Path) lod.getRenderCache(level);
+            if (lodPath == null) {
+                lodPath = new Path();
+                buildSimplified(lodPath, points);
+                lod.setRenderCache(level, lodPath);
+            }
+            canvas.drawPath(lodPath, paint);
+        } else {
+            path.update(curve);
+            canvas.drawPath(path.mPath, paint);
+        }
+    }
+
+    // самый грубый уровень, который на этом масштабе не отличить от кривой; -1 - рисовать все точки
+    private static int lodLevel(Curve curve, float scale) {
+        if (!curve.isSealed() || curve.getPointCount() < CurveLod.MIN_POINTS) {
+            return -1;
+        }
+        return CurveLod.levelFor(LOD_MAX_ERROR / scale);
+    }
+
+    private static PointBuffer lodPoints(Curve curve, int level) {
+        CurveLod lod = curve.getLod();
+        PointBuffer points = lod.getLevel(curve, level);
+        // get() заодно отмечает пирамиду как недавно нужную; новый уровень меняет её размер
+        Integer cached = LOD_CACHE.get(lod);
+        int byteCount = lod.getByteCount();
+        if (cached == null || cached != byteCount) {
+            LOD_CACHE.put(lod, byteCount);
+        }
+        return points;
+    }
+
+    private static void drawPolygon(Polygon polygon, Canvas canvas, PaintCache paints) {
+        PointBuffer points = polygon.getPoints();
+        switch (points.size()) {
+            case 0:
+                return;
+            case 1:
+                canvas.drawPoint(points.getX(0), points.getY(0),
+                        paints.stroke(polygon.getColor(), polygon.getStrokeWidth(), Paint.Cap.ROUND));
+                return;
+            case 2:
+                canvas.drawLines(points.getCoords(), 0, 4,
+                        paints.stroke(polygon.getColor(), polygon.getStrokeWidth(), Paint.Cap.ROUND));
+                return;
+            default:
+                break;
+        }
+
+        PolygonPath path = (PolygonPath) polygon.getRenderCache();
+        if (path == null) {
+            path = new PolygonPath();
+            polygon.setRenderCache(path);
+        }
+        path.update(polygon);
+        canvas.drawPath(path.mPath, paints.fill(polygon.getColor()));
+    }
+
+    // сглаженная часть кривой: квадратичные сегменты через середины соседних точек
+    private static void appendSmooth(Path path, PointBuffer points, int from, int to) {
+        for (int i = from; i < to; i++) {
+            float lastX = points.getX(i - 1);
+            float lastY = points.getY(i - 1);
+            path.quadTo(lastX, lastY, (lastX + points.getX(i)) / 2, (lastY + points.getY(i)) / 2);
+        }
+    }
+
+    // хвост запечатанной кривой, который сглаживание не покрыло
+    private static void appendTail(Path path, Curve curve) {
+        PointBuffer points = curve.getPoints();
+        int smoothCount = curve.getSmoothPointCount();
+        path.lineTo(points.getX(smoothCount - 1), points.getY(smoothCount - 1));
+        for (int i = smoothCount; i < points.size(); i++) {
+            path.lineTo(points.getX(i), points.getY(i));
+        }
+    }
+
+    // упрощённая кривая: все точки сглажены, хвоста нет
+    private static void buildSimplified(Path path, PointBuffer points) {
+        path.rewind();
+        path.moveTo(points.getX(0), points.getY(0));
+        appendSmooth(path, points, 1, points.size());
+        path.lineTo(points.getX(points.size() - 1), points.getY(points.size() - 1));
+    }
+
+    private static void buildPolygon(Path path, PointBuffer points) {
+        path.rewind();
+        path.moveTo(points.getX(0), points.getY(0));
+        for (int i = 1; i < points.size(); i++) {
+            path.lineTo(points.getX(i), points.getY(i));
+        }
+        path.close();
+    }
+
+    // путь многоугольника, перестраивается только когда сдвинулась вершина
+    private static class PolygonPath {
+        final Path mPath = new Path();
+        int mVersion = -1;
+
+        void update(Polygon polygon) {
+            if (mVersion == polygon.getVersion()) {
+                return;
+            }
+            buildPolygon(mPath, polygon.getPoints());
+            mVersion = polygon.getVersion();
+        }
+    }
+
+    // путь кривой; точки кривой только добавляются, поэтому достраиваем его с места, где остановились
+    private static class CurvePath {
+        final Path mPath = new Path();
+        int mBuiltCount;
+        boolean mFinished;
+
+        void update(Curve curve) {
+            PointBuffer points = curve.getPoints();
+            if (mBuiltCount == 0) {
+                mPath.moveTo(points.getX(0), points.getY(0));
+                mBuiltCount = 1;
+            }
+            int smoothCount = curve.getSmoothPointCount();
+            appendSmooth(mPath, points, mBuiltCount, smoothCount);
+            mBuiltCount = smoothCount;
+
+            if (curve.isSealed() && !mFinished) {
+                appendTail(mPath, curve);
+                mFinished = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,594 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Scene;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rasterizes the scene into fixed-size tiles laid out on a world grid, one grid per zoom level.
+ * Tiles live in an LRU cache bounded in bytes; only tiles overlapping a changed shape are
+ * dropped. While sharp tiles for the current zoom are missing, coarser cached ones are
+ * stretched in their place.
+ * <p>
+ * On request the visible tiles of the current zoom are also copied into checkpoints, a few per
+ * frame, kept in a second LRU cache with its own byte budget. A dropped tile is rebuilt from its latest usable checkpoint plus
+ * the commands after it, if a {@link ReplaySource} is set.
+ */
+public class TileRenderer {
+    public static final int TILE_SIZE = 256;
+
+    private static final int MIN_LEVEL = -4;
+    private static final int MAX_LEVEL = 4;
+    // сколько более грубых уровней пробуем вместо недорисованной плитки
+    private static final int FALLBACK_LEVELS = 3;
+    private static final long FRAME_RENDER_BUDGET_MS = 8;
+    // пустые плитки не держат битмап, но место в кэше всё равно занимают
+    private static final int EMPTY_TILE_BYTES = 64;
+    // снимков одной плитки больше не держим, старые всё равно почти не нужны
+    private static final int MAX_CHECKPOINTS_PER_TILE = 4;
+
+    private final Scene mScene;
+    private final LruCache<Long, Tile> mTiles;
+    // те же плитки по уровням: фигура задевает немногие, перебирать весь кэш ради неё дорого
+    private final List<Map<Long, Tile>> mLevelTiles = new ArrayList<>();
+    private final LruCache<Long, TileCheckpoints> mCheckpoints;
+    private ReplaySource mReplaySource;
+    // позиция, для которой ещё снимаются видимые плитки, или -1
+    private int mPendingCheckpoint = -1;
+    private long mPendingCheckpointBytes;
+
+    private Canvas mTileCanvas = new Canvas();
+    private Paint mBitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private Matrix mInverseMatrix = new Matrix();
+    private float[] mMatrixValues = new float[9];
+    private Rect mClipRect = new Rect();
+    private RectF mWorldRect = new RectF();
+    private RectF mScreenRect = new RectF();
+    private Rect mSrcRect = new Rect();
+    private Rect mDstRect = new Rect();
+    private Bounds mBounds = new Bounds();
+    private Bounds mTileBounds = new Bounds();
+    private Bounds mRepaintBounds = new Bounds();
+    private List<Shape> mShapes = new ArrayList<>();
+    // пустые плитки, получившие битмап в apply(); вернутся в кэш после цикла
+    private List<Tile> mGrownTiles = new ArrayList<>();
+    private List<Tile> mFoundTiles = new ArrayList<>();
+    private ShapeBatcher mBatcher = new ShapeBatcher();
+
+    public TileRenderer(Scene scene, int maxBytes, int checkpointBytes) {
+        mScene = scene;
+        for (int level = MIN_LEVEL; level <= MAX_LEVEL; level++) {
+            mLevelTiles.add(new HashMap<Long, Tile>());
+        }
+        mTiles = new LruCache<Long, Tile>(maxBytes) {
+            @Override
+            protected int sizeOf(Long key, Tile tile) {
+                return tile.mBitmap != null ? tile.mBitmap.getByteCount() : EMPTY_TILE_BYTES;
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, Long key, Tile oldTile, Tile newTile) {
+                if (newTile == null) {
+                    mLevelTiles.get(oldTile.mLevel - MIN_LEVEL).remove(key);
+                }
+                if (oldTile != newTile && oldTile.mBitmap != null) {
+                    oldTile.mBitmap.recycle();
+                }
+            }
+        };
+        mCheckpoints = new LruCache<Long, TileCheckpoints>(Math.max(1, checkpointBytes)) {
+            @Override
+            protected int sizeOf(Long key, TileCheckpoints checkpoints) {
+                return checkpoints.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, Long key, TileCheckpoints oldCheckpoints,
+                                        TileCheckpoints newCheckpoints) {
+                // remove() зовём только мы, чтобы поменять снимки вне кэша: их не трогаем
+                if (evicted || newCheckpoints != null && newCheckpoints != oldCheckpoints) {
+                    oldCheckpoints.recycleAfter(-1);
+                }
+            }
+        };
+    }
+
+    public void setReplaySource(ReplaySource replaySource) {
+        mReplaySource = replaySource;
+    }
+
+    public void setCheckpointBudget(int maxBytes) {
+        mCheckpoints.resize(Math.max(1, maxBytes));
+    }
+
+    /**
+     * Draws the visible tiles that intersect the canvas clip onto a screen canvas.
+     *
+     * @return false if some tiles are still missing and another frame is needed
+     */
+    public boolean draw(Canvas canvas, Matrix viewMatrix, int width, int height, PaintCache paints) {
+        viewMatrix.getValues(mMatrixValues);
+        int level = levelFor(mMatrixValues[Matrix.MSCALE_X]);
+        float tileWorldSize = tileWorldSize(level);
+
+        // рисуем только плитки внутри clip, при частичной перерисовке их немного
+        if (!canvas.getClipBounds(mClipRect) || !mClipRect.intersect(0, 0, width, height)) {
+            return true;
+        }
+        viewMatrix.invert(mInverseMatrix);
+        mWorldRect.set(mClipRect);
+        mInverseMatrix.mapRect(mWorldRect);
+
+        int firstX = (int) Math.floor(mWorldRect.left / tileWorldSize);
+        int firstY = (int) Math.floor(mWorldRect.top / tileWorldSize);
+        int lastX = (int) Math.floor(mWorldRect.right / tileWorldSize);
+        int lastY = (int) Math.floor(mWorldRect.bottom / tileWorldSize);
+
+        long deadline = SystemClock.uptimeMillis() + FRAME_RENDER_BUDGET_MS;
+        boolean complete = true;
+        for (int ty = firstY; ty <= lastY; ty++) {
+            for (int tx = firstX; tx <= lastX; tx++) {
+                Tile tile = mTiles.get(key(level, tx, ty));
+                if (tile == null) {
+                    if (SystemClock.uptimeMillis() < deadline) {
+                        tile = renderTile(level, tx, ty, paints);
+                    } else {
+                        complete = false;
+                        drawFallback(canvas, viewMatrix, level, tx, ty);
+                        continue;
+                    }
+                }
+                if (tile.mBitmap != null) {
+                    mWorldRect.set(tx * tileWorldSize, ty * tileWorldSize,
+                            (tx + 1) * tileWorldSize, (ty + 1) * tileWorldSize);
+                    drawTileBitmap(canvas, viewMatrix, tile.mBitmap, null, mWorldRect);
+                }
+            }
+        }
+        if (!copyCheckpoints(level, width, height, deadline)) {
+            complete = false;
+        }
+        return complete;
+    }
+
+    /**
+     * Repeats a just applied command on the cached tiles it affects, e.g. paints a new shape
+     * on top, so they stay valid without a re-render. If the command cannot be replayed, only
+     * its own bounds are repainted from the scene. An unbounded command, such as clearing the
+     * scene, drops every tile.
+     */
+    public void apply(Command command, PaintCache paints) {
+        if (!command.getBounds(mBounds)) {
+            // пустым плиткам пришлось бы заводить битмапы только ради прозрачной заливки;
+            // заново плитки нарисуются из сцены
+            mTiles.evictAll();
+            return;
+        }
+        findTiles(mBounds, mFoundTiles);
+        for (int i = 0; i < mFoundTiles.size(); i++) {
+            Tile tile = mFoundTiles.get(i);
+            long key = key(tile.mLevel, tile.mX, tile.mY);
+            boolean grown = tile.mBitmap == null;
+            if (grown) {
+                // LruCache помнит размер с момента put(): плитку вынимаем, пока она пустая,
+                // и кладём обратно уже с битмапом. put() прямо здесь мог бы вытеснить
+                // плитки, которые ещё ждут своей очереди
+                mTiles.remove(key);
+                tile.mBitmap = Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Bitmap.Config.ARGB_8888);
+            }
+            beginTile(tile);
+            tile.getWorldBounds(mTileBounds);
+            if (!command.replay(mTileCanvas, paints, mTileBounds, tileScale(tile.mLevel))) {
+                repaintArea(tile, paints);
+            }
+            mTileCanvas.restore();
+            if (grown) {
+                mGrownTiles.add(tile);
+            }
+        }
+        mFoundTiles.clear();
+        for (int i = 0; i < mGrownTiles.size(); i++) {
+            Tile tile = mGrownTiles.get(i);
+            putTile(key(tile.mLevel, tile.mX, tile.mY), tile);
+        }
+        mGrownTiles.clear();
+    }
+
+    /**
+     * Asks for a checkpoint at the given {@link ReplaySource#getPosition() position}. The tiles
+     * visible at the current zoom are copied by the following {@link #draw} calls, within their
+     * time budget and up to the checkpoint budget. The checkpoint is abandoned once another
+     * command is applied.
+     */
+    public void checkpoint(int position) {
+        mPendingCheckpoint = position;
+        mPendingCheckpointBytes = 0;
+    }
+
+    /**
+     * Drops checkpoints taken after {@code position}; they describe commands that were undone
+     * and then replaced.
+     */
+    public void discardCheckpointsAfter(int position) {
+        for (Map.Entry<Long, TileCheckpoints> entry : mCheckpoints.snapshot().entrySet()) {
+            TileCheckpoints checkpoints = entry.getValue();
+            if (!checkpoints.hasAfter(position)) {
+                continue;
+            }
+            // как в checkpoint(): размер меняется только вне кэша
+            mCheckpoints.remove(entry.getKey());
+            checkpoints.recycleAfter(position);
+            if (!checkpoints.isEmpty()) {
+                mCheckpoints.put(entry.getKey(), checkpoints);
+            }
+        }
+    }
+
+    /**
+     * Drops every cached tile that overlaps the area, at every zoom level.
+     */
+    public void invalidate(Bounds worldBounds) {
+        findTiles(worldBounds, mFoundTiles);
+        for (int i = 0; i < mFoundTiles.size(); i++) {
+            Tile tile = mFoundTiles.get(i);
+            mTiles.remove(key(tile.mLevel, tile.mX, tile.mY));
+        }
+        mFoundTiles.clear();
+    }
+
+    public void clear() {
+        mTiles.evictAll();
+    }
+
+    private Tile renderTile(int level, int tx, int ty, PaintCache paints) {
+        Tile tile = new Tile(level, tx, ty);
+        long key = key(level, tx, ty);
+        if (restoreTile(tile, key, paints)) {
+            putTile(key, tile);
+            return tile;
+        }
+
+        tile.getWorldBounds(mBounds);
+        mShapes.clear();
+        mScene.query(mBounds, mShapes);
+        if (!mShapes.isEmpty()) {
+            tile.mBitmap = Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Bitmap.Config.ARGB_8888);
+            beginTile(tile);
+            mBatcher.draw(mShapes, mTileCanvas, paints, tileScale(level));
+            mTileCanvas.restore();
+        }
+        Metrics.get().onTileRendered(mShapes.size(), mScene.size() - mShapes.size());
+        mShapes.clear();
+        putTile(key, tile);
+        return tile;
+    }
+
+    // снимает видимые плитки для отложенного checkpoint(), пока есть время кадра;
+    // false, если снять успели не всё
+    private boolean copyCheckpoints(int level, int width, int height, long deadline) {
+        if (mPendingCheckpoint < 0) {
+            return true;
+        }
+        if (mReplaySource == null || mReplaySource.getPosition() != mPendingCheckpoint) {
+            // после запроса уже были команды, плитки ту позицию не помнят
+            mPendingCheckpoint = -1;
+            return true;
+        }
+        float tileWorldSize = tileWorldSize(level);
+        mWorldRect.set(0, 0, width, height);
+        mInverseMatrix.mapRect(mWorldRect);
+        int firstX = (int) Math.floor(mWorldRect.left / tileWorldSize);
+        int firstY = (int) Math.floor(mWorldRect.top / tileWorldSize);
+        int lastX = (int) Math.floor(mWorldRect.right / tileWorldSize);
+        int lastY = (int) Math.floor(mWorldRect.bottom / tileWorldSize);
+
+        Map<Long, Tile> tiles = mLevelTiles.get(level - MIN_LEVEL);
+        boolean missing = false;
+        for (int ty = firstY; ty <= lastY; ty++) {
+            for (int tx = firstX; tx <= lastX; tx++) {
+                long key = key(level, tx, ty);
+                Tile tile = tiles.get(key);
+                if (tile == null) {
+                    // снимем, когда плитку дорисуют
+                    missing = true;
+                    continue;
+                }
+                TileCheckpoints checkpoints = mCheckpoints.get(key);
+                if (checkpoints != null && checkpoints.has(mPendingCheckpoint)) {
+                    continue;
+                }
+                if (SystemClock.uptimeMillis() >= deadline) {
+                    return false;
+                }
+                if (checkpoints == null) {
+                    checkpoints = new TileCheckpoints();
+                } else {
+                    // LruCache помнит размер с момента put(): меняем снимки, пока их нет в кэше
+                    mCheckpoints.remove(key);
+                }
+                Bitmap bitmap = tile.mBitmap;
+                checkpoints.add(mPendingCheckpoint,
+                        bitmap != null ? bitmap.copy(Bitmap.Config.ARGB_8888, false) : null);
+                // put() учитывает новый размер и при необходимости вытесняет старое
+                mCheckpoints.put(key, checkpoints);
+                mPendingCheckpointBytes += bitmap != null ? bitmap.getByteCount() : EMPTY_TILE_BYTES;
+                if (mPendingCheckpointBytes >= mCheckpoints.maxSize()) {
+                    // дальше снимок вытеснял бы сам себя
+                    mPendingCheckpoint = -1;
+                    return true;
+                }
+            }
+        }
+        if (!missing) {
+            mPendingCheckpoint = -1;
+        }
+        return true;
+    }
+
+    private void putTile(long key, Tile tile) {
+        mLevelTiles.get(tile.mLevel - MIN_LEVEL).put(key, tile);
+        mTiles.put(key, tile);
+    }
+
+    // плитки в кэше, задевающие область, на всех уровнях.
+    // На каждом уровне перебираем меньшее: клетки сетки под областью или плитки уровня
+    private void findTiles(Bounds bounds, List<Tile> out) {
+        for (int level = MIN_LEVEL; level <= MAX_LEVEL; level++) {
+            Map<Long, Tile> tiles = mLevelTiles.get(level - MIN_LEVEL);
+            if (tiles.isEmpty()) {
+                continue;
+            }
+            // как в Tile.overlaps(): плитки, которые только касаются области, тоже берём
+            float size = tileWorldSize(level);
+            int firstX = (int) Math.ceil(bounds.left / size) - 1;
+            int firstY = (int) Math.ceil(bounds.top / size) - 1;
+            int lastX = (int) Math.floor(bounds.right / size);
+            int lastY = (int) Math.floor(bounds.bottom / size);
+            long cells = (long) (lastX - firstX + 1) * (lastY - firstY + 1);
+            if (cells < tiles.size()) {
+                for (int ty = firstY; ty <= lastY; ty++) {
+                    for (int tx = firstX; tx <= lastX; tx++) {
+                        Tile tile = tiles.get(key(level, tx, ty));
+                        if (tile != null && tile.overlaps(bounds)) {
+                            out.add(tile);
+                        }
+                    }
+                }
+            } else {
+                for (Tile tile : tiles.values()) {
+                    if (tile.overlaps(bounds)) {
+                        out.add(tile);
+                    }
+                }
+            }
+        }
+    }
+
+    // снимок плитки плюс команды после него; false, если снимка нет или команду не повторить
+    private boolean restoreTile(Tile tile, long key, PaintCache paints) {
+        if (mReplaySource == null) {
+            return false;
+        }
+        TileCheckpoints checkpoints = mCheckpoints.get(key);
+        int position = mReplaySource.getPosition();
+        int index = checkpoints != null ? checkpoints.latestAtOrBefore(position) : -1;
+        if (index < 0) {
+            return false;
+        }
+
+        int checkpointPosition = checkpoints.mPositions.get(index);
+        Bitmap checkpointBitmap = checkpoints.mBitmaps.get(index);
+        if (checkpointPosition == position && checkpointBitmap == null) {
+            return true;
+        }
+        tile.mBitmap = checkpointBitmap != null
+                ? checkpointBitmap.copy(Bitmap.Config.ARGB_8888, true)
+                : Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Bitmap.Config.ARGB_8888);
+        beginTile(tile);
+        tile.getWorldBounds(mTileBounds);
+        boolean replayed = mReplaySource.replay(checkpointPosition, mTileCanvas, paints, mTileBounds,
+                tileScale(tile.mLevel));
+        mTileCanvas.restore();
+        if (!replayed) {
+            tile.mBitmap.recycle();
+            tile.mBitmap = null;
+        }
+        return replayed;
+    }
+
+    // перерисовывает из сцены кусок плитки под mBounds; холст уже в мировых координатах
+    private void repaintArea(Tile tile, PaintCache paints) {
+        // пиксель запаса на сглаживание краёв
+        float pixel = tileWorldSize(tile.mLevel) / TILE_SIZE;
+        mRepaintBounds.set(Math.max(mBounds.left - pixel, mTileBounds.left),
+                Math.max(mBounds.top - pixel, mTileBounds.top),
+                Math.min(mBounds.right + pixel, mTileBounds.right),
+                Math.min(mBounds.bottom + pixel, mTileBounds.bottom));
+        int saveCount = mTileCanvas.save();
+        mTileCanvas.clipRect(mRepaintBounds.left, mRepaintBounds.top,
+                mRepaintBounds.right, mRepaintBounds.bottom);
+        mTileCanvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+        mShapes.clear();
+        mScene.query(mRepaintBounds, mShapes);
+        mBatcher.draw(mShapes, mTileCanvas, paints, tileScale(tile.mLevel));
+        mShapes.clear();
+        mTileCanvas.restoreToCount(saveCount);
+    }
+
+    private void beginTile(Tile tile) {
+        float scale = tileScale(tile.mLevel);
+        mTileCanvas.setBitmap(tile.mBitmap);
+        mTileCanvas.save();
+        mTileCanvas.scale(scale, scale);
+        mTileCanvas.translate(-tile.mX * tileWorldSize(tile.mLevel), -tile.mY * tileWorldSize(tile.mLevel));
+    }
+
+    private void drawFallback(Canvas canvas, Matrix viewMatrix, int level, int tx, int ty) {
+        float tileWorldSize = tileWorldSize(level);
+        for (int i = 1; i <= FALLBACK_LEVELS && level - i >= MIN_LEVEL; i++) {
+            int parentLevel = level - i;
+            int parentX = tx >> i;
+            int parentY = ty >> i;
+            Tile parent = mTiles.get(key(parentLevel, parentX, parentY));
+            if (parent == null) {
+                continue;
+            }
+            if (parent.mBitmap != null) {
+                // часть родительской плитки, которая покрывает нашу
+                int cell = TILE_SIZE >> i;
+                int left = (tx - parentX * (1 << i)) * cell;
+                int top = (ty - parentY * (1 << i)) * cell;
+                mSrcRect.set(left, top, left + cell, top + cell);
+                mWorldRect.set(tx * tileWorldSize, ty * tileWorldSize,
+                        (tx + 1) * tileWorldSize, (ty + 1) * tileWorldSize);
+                drawTileBitmap(canvas, viewMatrix, parent.mBitmap, mSrcRect, mWorldRect);
+            }
+            return;
+        }
+    }
+
+    private void drawTileBitmap(Canvas canvas, Matrix viewMatrix, Bitmap bitmap, Rect src, RectF world) {
+        // края округляем, чтобы между соседними плитками не было щелей
+        viewMatrix.mapRect(mScreenRect, world);
+        mScreenRect.round(mDstRect);
+        canvas.drawBitmap(bitmap, src, mDstRect, mBitmapPaint);
+    }
+
+    private static int levelFor(float scale) {
+        int level = Math.round((float) (Math.log(scale) / Math.log(2)));
+        return Math.max(MIN_LEVEL, Math.min(MAX_LEVEL, level));
+    }
+
+    // пикселей плитки на единицу мира
+    private static float tileScale(int level) {
+        return TILE_SIZE / tileWorldSize(level);
+    }
+
+    private static float tileWorldSize(int level) {
+        return level >= 0 ? (float) TILE_SIZE / (1 << level) : (float) TILE_SIZE * (1 << -level);
+    }
+
+    private static long key(int level, int tx, int ty) {
+        return ((long) (level - MIN_LEVEL) << 56)
+                | (((long) tx & 0xFFFFFFFL) << 28)
+                | ((long) ty & 0xFFFFFFFL);
+    }
+
+    /**
+     * Log of commands applied to the scene, used to bring a checkpoint up to date.
+     */
+    public interface ReplaySource {
+        /**
+         * Number of commands applied so far.
+         */
+        int getPosition();
+
+        /**
+         * Repeats the commands from {@code from} up to the current position on a tile canvas
+         * in world coordinates, {@code scale} pixels per unit. Only the part inside
+         * {@code area} has to be correct.
+         *
+         * @return false if some command cannot be replayed this way
+         */
+        boolean replay(int from, Canvas canvas, PaintCache paints, Bounds area, float scale);
+    }
+
+    // снимки одной плитки по возрастанию позиции; null вместо битмапа - пустая плитка
+    private static class TileCheckpoints {
+        final List<Integer> mPositions = new ArrayList<>();
+        final List<Bitmap> mBitmaps = new ArrayList<>();
+
+        boolean isEmpty() {
+            return mPositions.isEmpty();
+        }
+
+        boolean has(int position) {
+            return mPositions.contains(position);
+        }
+
+        boolean hasAfter(int position) {
+            return !mPositions.isEmpty() && mPositions.get(mPositions.size() - 1) > position;
+        }
+
+        void add(int position, Bitmap bitmap) {
+            mPositions.add(position);
+            mBitmaps.add(bitmap);
+            if (mPositions.size() > MAX_CHECKPOINTS_PER_TILE) {
+                mPositions.remove(0);
+                Bitmap oldest = mBitmaps.remove(0);
+                if (oldest != null) {
+                    oldest.recycle();
+                }
+            }
+        }
+
+        int latestAtOrBefore(int position) {
+            for (int i = mPositions.size() - 1; i >= 0; i--) {
+                if (mPositions.get(i) <= position) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        void recycleAfter(int position) {
+            for (int i = mPositions.size() - 1; i >= 0 && mPositions.get(i) > position; i--) {
+                mPositions.remove(i);
+                Bitmap bitmap = mBitmaps.remove(i);
+                if (bitmap != null) {
+                    bitmap.recycle();
+                }
+            }
+        }
+
+        int getByteCount() {
+            int bytes = 0;
+            for (int i = 0; i < mBitmaps.size(); i++) {
+                Bitmap bitmap = mBitmaps.get(i);
+                bytes += bitmap != null ? bitmap.getByteCount() : EMPTY_TILE_BYTES;
+            }
+            return bytes;
+        }
+    }
+
+    private static class Tile {
+        final int mLevel;
+        final int mX;
+        final int mY;
+        // null, если в плитке ничего нет
+        Bitmap mBitmap;
+
+        Tile(int level, int x, int y) {
+            mLevel = level;
+            mX = x;
+            mY = y;
+        }
+
+        void getWorldBounds(Bounds out) {
+            float size = tileWorldSize(mLevel);
+            out.set(mX * size, mY * size, (mX + 1) * size, (mY + 1) * size);
+        }
+
+        boolean overlaps(Bounds bounds) {
+            float size = tileWorldSize(mLevel);
+            return mX * size <= bounds.right && (mX + 1) * size >= bounds.left
+                    && mY * size <= bounds.bottom && (mY + 1) * size >= bounds.top;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.github.rkhusainov.simpledraw;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer/single-consumer ring buffer of touch samples. The UI thread
+ * writes through the {@link TouchInput.Callback} methods, the render thread replays
+ * everything written so far with {@link #drainTo}. Samples are stored in parallel primitive
+ * arrays, so neither side allocates.
+ */
+public class TouchEventQueue implements TouchInput.Callback {
+    private static final int TYPE_DOWN = 0;
+    private static final int TYPE_POINTER_DOWN = 1;
+    private static final int TYPE_MOVE = 2;
+    private static final int TYPE_UP = 3;
+    private static final int TYPE_CANCEL = 4;
+    private static final int TYPE_PAN = 5;
+    private static final int TYPE_ZOOM = 6;
+    private static final int TYPE_POINTER_UP = 7;
+
+    private final int mCapacity;
+    private final int mMask;
+    private final int[] mTypes;
+    private final int[] mPointerIds;
+    private final float[] mX;
+    private final float[] mY;
+    private final float[] mValues;
+
+    // следующая ячейка для чтения, двигает только потребитель
+    private final AtomicLong mHead = new AtomicLong();
+    // следующая ячейка для записи, двигает только производитель
+    private final AtomicLong mTail = new AtomicLong();
+
+    private long mDropped;
+
+    public TouchEventQueue(int capacity) {
+        mCapacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mMask = mCapacity - 1;
+        mTypes = new int[mCapacity];
+        mPointerIds = new int[mCapacity];
+        mX = new float[mCapacity];
+        mY = new float[mCapacity];
+        mValues = new float[mCapacity];
+    }
+
+    @Override
+    public void touchDown(int pointerId, float x, float y) {
+        offer(TYPE_DOWN, pointerId, x, y, 0);
+    }
+
+    @Override
+    public void pointerDown(int pointerId, float x, float y) {
+        offer(TYPE_POINTER_DOWN, pointerId, x, y, 0);
+    }
+
+    @Override
+    public void touchMove(int pointerId, float x, float y) {
+        offer(TYPE_MOVE, pointerId, x, y, 0);
+    }
+
+    @Override
+    public void pointerUp(int pointerId, float x, float y) {
+        offer(TYPE_POINTER_UP, pointerId, x, y, 0);
+    }
+
+    @Override
+    public void touchUp(int pointerId, float x, float y) {
+        offer(TYPE_UP, pointerId, x, y, 0);
+    }
+
+    @Override
+    public void touchCancel() {
+        offer(TYPE_CANCEL, 0, 0, 0, 0);
+    }
+
+    @Override
+    public void pan(float dx, float dy) {
+        offer(TYPE_PAN, 0, dx, dy, 0);
+    }
+
+    @Override
+    public void zoom(float factor, float focusX, float focusY) {
+        offer(TYPE_ZOOM, 0, focusX, focusY, factor);
+    }
+
+    /**
+     * Replays queued samples in order. Consumer side only.
+     *
+     * @return number of samples replayed
+     */
+    public int drainTo(TouchInput.Callback callback) {
+        long head = mHead.get();
+        long tail = mTail.get();
+        for (long i = head; i < tail; i++) {
+            int index = (int) (i & mMask);
+            float x = mX[index];
+            float y = mY[index];
+            switch (mTypes[index]) {
+                case TYPE_DOWN:
+                    callback.touchDown(mPointerIds[index], x, y);
+                    break;
+                case TYPE_POINTER_DOWN:
+                    callback.pointerDown(mPointerIds[index], x, y);
+                    break;
+                case TYPE_MOVE:
+                    callback.touchMove(mPointerIds[index], x, y);
+                    break;
+                case TYPE_POINTER_UP:
+                    callback.pointerUp(mPointerIds[index], x, y);
+                    break;
+                case TYPE_UP:
+                    callback.touchUp(mPointerIds[index], x, y);
+                    break;
+                case TYPE_CANCEL:
+                    callback.touchCancel();
+                    break;
+                case TYPE_PAN:
+                    callback.pan(x, y);
+                    break;
+                case TYPE_ZOOM:
+                    callback.zoom(mValues[index], x, y);
+                    break;
+            }
+        }
+        mHead.lazySet(tail);
+        return (int) (tail - head);
+    }
+
+    public boolean isEmpty() {
+        return mHead.get() == mTail.get();
+    }
+
+    /**
+     * Samples rejected because the consumer fell a whole buffer behind. Producer side only.
+     */
+    public long getDroppedCount() {
+        return mDropped;
+    }
+
+    private void offer(int type, int pointerId, float x, float y, float value) {
+        long tail = mTail.get();
+        if (tail - mHead.get() >= mCapacity) {
+            mDropped++;
+            return;
+        }
+        int index = (int) (tail & mMask);
+        mTypes[index] = type;
+        mPointerIds[index] = pointerId;
+        mX[index] = x;
+        mY[index] = y;
+        mValues[index] = value;
+        // публикуем ячейку только после того, как она заполнена
+        mTail.lazySet(tail + 1);
+    }
+}
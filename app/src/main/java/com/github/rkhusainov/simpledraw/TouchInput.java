@@ -0,0 +1,75 @@
+package com.github.rkhusainov.simpledraw;
+
+import android.view.MotionEvent;
+
+/**
+ * Breaks {@link MotionEvent}s down into per-pointer samples, historical ones included.
+ */
+public final class TouchInput {
+
+    public interface Callback {
+
+        void touchDown(int pointerId, float x, float y);
+
+        void pointerDown(int pointerId, float x, float y);
+
+        void touchMove(int pointerId, float x, float y);
+
+        /**
+         * A finger went up while others stay down.
+         */
+        void pointerUp(int pointerId, float x, float y);
+
+        void touchUp(int pointerId, float x, float y);
+
+        void touchCancel();
+
+        void pan(float dx, float dy);
+
+        void zoom(float factor, float focusX, float focusY);
+    }
+
+    private TouchInput() {
+    }
+
+    /**
+     * @return false if the event is not a touch action the drawing cares about
+     */
+    public static boolean dispatch(MotionEvent event, Callback callback) {
+        int actionIndex = event.getActionIndex();
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                callback.touchDown(event.getPointerId(0), event.getX(), event.getY());
+                return true;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                callback.pointerDown(event.getPointerId(actionIndex),
+                        event.getX(actionIndex), event.getY(actionIndex));
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                // на быстрых дигитайзерах в одном событии приходит пачка точек
+                for (int h = 0; h < event.getHistorySize(); h++) {
+                    for (int i = 0; i < event.getPointerCount(); i++) {
+                        callback.touchMove(event.getPointerId(i),
+                                event.getHistoricalX(i, h), event.getHistoricalY(i, h));
+                    }
+                }
+                for (int i = 0; i < event.getPointerCount(); i++) {
+                    callback.touchMove(event.getPointerId(i), event.getX(i), event.getY(i));
+                }
+                return true;
+            case MotionEvent.ACTION_POINTER_UP:
+                callback.pointerUp(event.getPointerId(actionIndex),
+                        event.getX(actionIndex), event.getY(actionIndex));
+                return true;
+            case MotionEvent.ACTION_UP:
+                callback.touchUp(event.getPointerId(actionIndex),
+                        event.getX(actionIndex), event.getY(actionIndex));
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                callback.touchCancel();
+                return true;
+            default:
+                return false;
+        }
+    }
+}
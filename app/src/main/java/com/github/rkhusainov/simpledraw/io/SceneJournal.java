@@ -0,0 +1,317 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import android.util.Log;
+
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crash-safe autosave. Every operation is appended to a journal on a background thread;
+ * once the journal grows past a threshold it is folded into a snapshot and started over,
+ * so a save never costs more than the operation itself plus an amortized share of one
+ * snapshot. Both files use {@link SceneFormat}. The journal starts with the generation of
+ * the snapshot it continues, so a journal already folded into a newer snapshot is ignored.
+ * Records are flushed as soon as no more operations are queued, so a crash loses at most the
+ * operations still in the queue.
+ * <p>
+ * Operations may be called from any single thread; they are applied in call order.
+ */
+public class SceneJournal implements Closeable {
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
+
+    private static final String TAG = "SceneJournal";
+    private static final long CLOSE_TIMEOUT_MS = 2000;
+
+    private final File mSnapshotFile;
+    private final File mJournalFile;
+    private final long mCompactionThreshold;
+    // свой пул вместо Executors.newSingleThreadExecutor(): нужен доступ к очереди
+    private final ThreadPoolExecutor mExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>());
+
+    // поля ниже после restore() трогает только mExecutor
+    private SceneWriter mJournal;
+    private long mGeneration;
+    private List<Shape> mShapes = new ArrayList<>();
+    // scale, translateX, translateY или null
+    private float[] mView;
+
+    private float[] mRestoredView;
+
+    // вид, ещё не записанный в журнал: прокрутка пишется одной записью на пачку событий
+    private final float[] mPendingView = new float[3];
+    private boolean mViewPending;
+
+    public SceneJournal(File dir, String name) {
+        this(new File(dir, name + ".sdrw"), new File(dir, name + ".journal"), DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public SceneJournal(File snapshotFile, File journalFile, long compactionThreshold) {
+        mSnapshotFile = snapshotFile;
+        mJournalFile = journalFile;
+        mCompactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Replays the snapshot and the journal and opens the journal for appending. Must be
+     * called once, before any operation. Unreadable files are moved aside and an empty
+     * drawing is returned. Shapes decode their points lazily.
+     *
+     * @throws IOException if not even a new journal can be created
+     */
+    public List<Shape> restore() throws IOException {
+        try {
+            replay();
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot restore the drawing, starting a new one", e);
+            mSnapshotFile.renameTo(new File(mSnapshotFile.getPath() + ".corrupt"));
+            mShapes.clear();
+            mView = null;
+            mGeneration = 0;
+            startJournal();
+        }
+        mRestoredView = mView != null ? mView.clone() : null;
+        return new ArrayList<>(mShapes);
+    }
+
+    /**
+     * Copies the restored view as scale, translate x, translate y.
+     *
+     * @return false if no view was saved
+     */
+    public boolean getRestoredView(float[] out) {
+        if (mRestoredView == null) {
+            return false;
+        }
+        System.arraycopy(mRestoredView, 0, out, 0, mRestoredView.length);
+        return true;
+    }
+
+    /**
+     * Journals a committed shape. The shape must not change afterwards.
+     */
+    public void add(final Shape shape) {
+        mExecutor.execute(new JournalTask() {
+            @Override
+            void write() throws IOException {
+                mShapes.add(shape);
+                mJournal.write(shape);
+                compactIfNeeded();
+            }
+        });
+    }
+
+    public void clear() {
+        mExecutor.execute(new JournalTask() {
+            @Override
+            void write() throws IOException {
+                mShapes.clear();
+                mJournal.writeClear();
+                compactIfNeeded();
+            }
+        });
+    }
+
+    /**
+     * Journals a committed shape put at {@code index}, counted from the bottom.
+     */
+    public void insert(final int index, final Shape shape) {
+        mExecutor.execute(new JournalTask() {
+            @Override
+            void write() throws IOException {
+                mShapes.add(index, shape);
+                mJournal.writeInsert(index, shape);
+                compactIfNeeded();
+            }
+        });
+    }
+
+    /**
+     * Journals the removal of the shape at {@code index}, counted from the bottom.
+     */
+    public void remove(final int index) {
+        mExecutor.execute(new JournalTask() {
+            @Override
+            void write() throws IOException {
+                mShapes.remove(index);
+                mJournal.writeRemove(index);
+                compactIfNeeded();
+            }
+        });
+    }
+
+    /**
+     * Journals the view transform. Calls that arrive while the previous one is still
+     * queued only update the values, so a scroll gesture costs a handful of records.
+     */
+    public void setView(float scale, float translateX, float translateY) {
+        synchronized (mPendingView) {
+            mPendingView[0] = scale;
+            mPendingView[1] = translateX;
+            mPendingView[2] = translateY;
+            if (mViewPending) {
+                return;
+            }
+            mViewPending = true;
+        }
+        mExecutor.execute(new JournalTask() {
+            @Override
+            void write() throws IOException {
+                if (mView == null) {
+                    mView = new float[3];
+                }
+                synchronized (mPendingView) {
+                    System.arraycopy(mPendingView, 0, mView, 0, mView.length);
+                    mViewPending = false;
+                }
+                mJournal.writeView(mView[0], mView[1], mView[2]);
+                compactIfNeeded();
+            }
+        });
+    }
+
+    /**
+     * Pushes queued operations to the file system without waiting for them.
+     */
+    public void flush() {
+        mExecutor.execute(new JournalTask() {
+            @Override
+            void write() throws IOException {
+                mJournal.flush();
+            }
+        });
+    }
+
+    /**
+     * Writes out queued operations and waits for them, so the next {@link #restore} in this
+     * process sees everything.
+     */
+    @Override
+    public void close() {
+        mExecutor.execute(new JournalTask() {
+            @Override
+            void write() throws IOException {
+                SceneWriter journal = mJournal;
+                mJournal = null;
+                journal.close();
+            }
+        });
+        mExecutor.shutdown();
+        try {
+            if (!mExecutor.awaitTermination(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Journal is still writing after " + CLOSE_TIMEOUT_MS + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void replay() throws IOException {
+        SceneReader snapshot = mSnapshotFile.exists() ? SceneReader.open(mSnapshotFile) : null;
+        mGeneration = snapshot != null ? snapshot.getGeneration() : 0;
+
+        SceneReader journal = null;
+        if (mJournalFile.exists()) {
+            try {
+                // журнал применяется поверх снимка
+                journal = SceneReader.open(mJournalFile, snapshot);
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot read the journal, restoring the snapshot only", e);
+            }
+        }
+        if (journal != null && journal.getGeneration() != mGeneration) {
+            // журнал уже свёрнут в снимок: упали до того, как его заменили
+            journal = null;
+        }
+
+        SceneReader state = journal != null ? journal : snapshot;
+        mShapes.clear();
+        mView = null;
+        if (state != null) {
+            for (int i = 0; i < state.getShapeCount(); i++) {
+                mShapes.add(state.getShape(i));
+            }
+            float[] view = new float[3];
+            if (state.getView(view)) {
+                mView = view;
+            }
+        }
+
+        if (journal != null) {
+            mJournal = SceneWriter.append(mJournalFile, journal.getValidLength());
+        } else {
+            startJournal();
+        }
+    }
+
+    private void startJournal() throws IOException {
+        mJournal = SceneWriter.create(mJournalFile);
+        mJournal.writeGeneration(mGeneration);
+        mJournal.flush();
+    }
+
+    // сворачивает журнал в новый снимок, когда он слишком разросся
+    private void compactIfNeeded() throws IOException {
+        if (mJournal.getBytesWritten() < mCompactionThreshold) {
+            return;
+        }
+
+        long generation = mGeneration + 1;
+        File temp = new File(mSnapshotFile.getPath() + ".tmp");
+        SceneWriter snapshot = new SceneWriter(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            snapshot.writeGeneration(generation);
+            if (mView != null) {
+                snapshot.writeView(mView[0], mView[1], mView[2]);
+            }
+            for (int i = 0; i < mShapes.size(); i++) {
+                snapshot.write(mShapes.get(i));
+            }
+        } finally {
+            snapshot.close();
+        }
+        if (!temp.renameTo(mSnapshotFile)) {
+            throw new IOException("Cannot rename " + temp + " to " + mSnapshotFile);
+        }
+
+        // снимок уже на месте, старый журнал с прежним поколением при чтении пропустится
+        mGeneration = generation;
+        mJournal.close();
+        startJournal();
+    }
+
+    private abstract class JournalTask implements Runnable {
+        @Override
+        public void run() {
+            if (mJournal == null) {
+                return;
+            }
+            try {
+                write();
+                // очередь пуста - пачка закончилась, отдаём её файловой системе
+                if (mJournal != null && mExecutor.getQueue().isEmpty()) {
+                    mJournal.flush();
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Autosave failed, journaling stops", e);
+                try {
+                    mJournal.close();
+                } catch (IOException ignored) {
+                }
+                mJournal = null;
+            }
+        }
+
+        abstract void write() throws IOException;
+    }
+}
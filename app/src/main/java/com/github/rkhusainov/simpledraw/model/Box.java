@@ -1,39 +0,0 @@
-package com.github.rkhusainov.simpledraw.model;
-
-import android.graphics.PointF;
-
-public class Box {
-    private PointF mOrigin;
-    private PointF mCurrent;
-    private int mColor;
-
-    public Box(PointF origin, int color) {
-        mOrigin = origin;
-        mCurrent = origin;
-        mColor = color;
-    }
-
-    public PointF getOrigin() {
-        return mOrigin;
-    }
-
-    public void setOrigin(PointF origin) {
-        mOrigin = origin;
-    }
-
-    public PointF getCurrent() {
-        return mCurrent;
-    }
-
-    public void setCurrent(PointF current) {
-        mCurrent = current;
-    }
-
-    public int getColor() {
-        return mColor;
-    }
-
-    public void setColor(int color) {
-        mColor = color;
-    }
-}
@@ -0,0 +1,39 @@
+package com.github.rkhusainov.simpledraw;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MetricsTest {
+
+    @Test
+    public void histogramPercentilesUseBucketBounds() {
+        Metrics.Histogram histogram = new Metrics.Histogram("test", "us");
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50, histogram.getMean());
+        // 50 попадает в корзину [32, 63]
+        assertEquals(63, histogram.getPercentile(0.5f));
+        // верхняя корзина обрезается по максимуму
+        assertEquals(100, histogram.getPercentile(0.99f));
+    }
+
+    @Test
+    public void emptyAndReset() {
+        Metrics.Histogram histogram = new Metrics.Histogram("test", "ms");
+        assertEquals(0, histogram.getPercentile(0.5f));
+
+        histogram.record(-5);
+        histogram.record(7);
+        assertEquals(0, histogram.getPercentile(0.5f));
+        assertEquals(7, histogram.getMax());
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.rkhusainov.simpledraw;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TouchEventQueueTest {
+
+    @Test
+    public void replaysInOrderAcrossThreads() throws InterruptedException {
+        final int count = 200000;
+        final TouchEventQueue queue = new TouchEventQueue(64);
+        final Recorder recorder = new Recorder();
+
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (recorder.mMoves.size() < count) {
+                    queue.drainTo(recorder);
+                }
+            }
+        });
+        consumer.start();
+
+        // при переполнении отброшенное событие повторяем, чтобы проверить порядок целиком
+        for (int i = 0; i < count; i++) {
+            long dropped = queue.getDroppedCount();
+            queue.touchMove(1, i, -i);
+            while (queue.getDroppedCount() != dropped) {
+                dropped = queue.getDroppedCount();
+                Thread.yield();
+                queue.touchMove(1, i, -i);
+            }
+        }
+        consumer.join(10000);
+
+        assertEquals(count, recorder.mMoves.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, recorder.mMoves.get(i), 0);
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void keepsEventKinds() {
+        TouchEventQueue queue = new TouchEventQueue(16);
+        queue.touchDown(0, 1, 2);
+        queue.pointerDown(3, 4, 5);
+        queue.zoom(2f, 6, 7);
+        queue.pan(8, 9);
+        queue.pointerUp(3, 12, 13);
+        queue.touchUp(0, 10, 11);
+        queue.touchCancel();
+
+        Recorder recorder = new Recorder();
+        assertEquals(7, queue.drainTo(recorder));
+        assertEquals("down 0 1.0 2.0|pointer 3 4.0 5.0|zoom 2.0 6.0 7.0|pan 8.0 9.0|"
+                        + "pointer up 3 12.0 13.0|up 0 10.0 11.0|cancel|",
+                recorder.mLog.toString());
+    }
+
+    private static class Recorder implements TouchInput.Callback {
+        final List<Float> mMoves = new ArrayList<>();
+        final StringBuilder mLog = new StringBuilder();
+
+        @Override
+        public void touchDown(int pointerId, float x, float y) {
+            mLog.append("down ").append(pointerId).append(' ').append(x).append(' ').append(y).append('|');
+        }
+
+        @Override
+        public void pointerDown(int pointerId, float x, float y) {
+            mLog.append("pointer ").append(pointerId).append(' ').append(x).append(' ').append(y).append('|');
+        }
+
+        @Override
+        public void touchMove(int pointerId, float x, float y) {
+            assertEquals(x, -y, 0);
+            mMoves.add(x);
+        }
+
+        @Override
+        public void pointerUp(int pointerId, float x, float y) {
+            mLog.append("pointer up ").append(pointerId).append(' ').append(x).append(' ').append(y).append('|');
+        }
+
+        @Override
+        public void touchUp(int pointerId, float x, float y) {
+            mLog.append("up ").append(pointerId).append(' ').append(x).append(' ').append(y).append('|');
+        }
+
+        @Override
+        public void touchCancel() {
+            mLog.append("cancel|");
+        }
+
+        @Override
+        public void pan(float dx, float dy) {
+            mLog.append("pan ").append(dx).append(' ').append(dy).append('|');
+        }
+
+        @Override
+        public void zoom(float factor, float focusX, float focusY) {
+            mLog.append("zoom ").append(factor).append(' ').append(focusX).append(' ').append(focusY).append('|');
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Streaming PNG encoder, 8-bit RGBA. Rows are written top to bottom in any number of calls,
+ * so an image never has to be held in memory as a whole.
+ */
+public class PngWriter {
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IDAT_SIZE = 64 * 1024;
+    private static final int FILTER_UP = 2;
+
+    private final OutputStream mOut;
+    private final int mWidth;
+    private final int mHeight;
+    private final DeflaterOutputStream mData;
+    private final Deflater mDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+    // байты строки с фильтром Up: разность с предыдущей строкой, у рисунка она почти везде ноль
+    private byte[] mRow;
+    private byte[] mFiltered;
+    private byte[] mPreviousRow;
+    private int mRowsWritten;
+
+    public PngWriter(OutputStream out, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Bad image size " + width + "x" + height);
+        }
+        mOut = out;
+        mWidth = width;
+        mHeight = height;
+        mRow = new byte[width * 4];
+        mPreviousRow = new byte[width * 4];
+        mFiltered = new byte[width * 4 + 1];
+
+        mOut.write(SIGNATURE);
+        ChunkStream header = new ChunkStream("IHDR", 13);
+        header.writeInt(width);
+        header.writeInt(height);
+        header.write(8);    // бит на канал
+        header.write(6);    // RGBA
+        header.write(0);    // deflate
+        header.write(0);    // стандартные фильтры
+        header.write(0);    // без interlace
+        header.flushChunk();
+
+        mData = new DeflaterOutputStream(new ChunkStream("IDAT", IDAT_SIZE), mDeflater, IDAT_SIZE);
+    }
+
+    /**
+     * Appends rows of unpremultiplied ARGB pixels.
+     *
+     * @param offset index of the first pixel of the first row
+     * @param stride pixels between the starts of two rows
+     */
+    public void writeRows(int[] argb, int offset, int stride, int rows) throws IOException {
+        if (mRowsWritten + rows > mHeight) {
+            throw new IllegalStateException("Image has only " + mHeight + " rows");
+        }
+        for (int r = 0; r < rows; r++) {
+            int start = offset + r * stride;
+            for (int x = 0; x < mWidth; x++) {
+                int color = argb[start + x];
+                int i = x * 4;
+                mRow[i] = (byte) (color >> 16);
+                mRow[i + 1] = (byte) (color >> 8);
+                mRow[i + 2] = (byte) color;
+                mRow[i + 3] = (byte) (color >>> 24);
+            }
+            mFiltered[0] = FILTER_UP;
+            for (int i = 0; i < mRow.length; i++) {
+                mFiltered[i + 1] = (byte) (mRow[i] - mPreviousRow[i]);
+            }
+            mData.write(mFiltered);
+
+            byte[] swap = mPreviousRow;
+            mPreviousRow = mRow;
+            mRow = swap;
+        }
+        mRowsWritten += rows;
+    }
+
+    /**
+     * Finishes the image. Does not close the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (mRowsWritten != mHeight) {
+            throw new IllegalStateException(mRowsWritten + " of " + mHeight + " rows written");
+        }
+        try {
+            mData.finish();
+            mData.flush();
+        } finally {
+            mDeflater.end();
+        }
+        new ChunkStream("IEND", 0).flushChunk();
+    }
+
+    /**
+     * Collects the data of one chunk type, every {@code capacity} bytes are written out
+     * as a separate chunk.
+     */
+    private class ChunkStream extends OutputStream {
+        private final byte[] mType;
+        private final byte[] mBuffer;
+        private final CRC32 mCrc = new CRC32();
+        private int mCount;
+
+        ChunkStream(String type, int capacity) {
+            mType = type.getBytes(StandardCharsets.US_ASCII);
+            mBuffer = new byte[capacity];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (mCount == mBuffer.length) {
+                flushChunk();
+            }
+            mBuffer[mCount++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (mCount == mBuffer.length) {
+                    flushChunk();
+                }
+                int n = Math.min(len, mBuffer.length - mCount);
+                System.arraycopy(b, off, mBuffer, mCount, n);
+                mCount += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (mCount > 0) {
+                flushChunk();
+            }
+            mOut.flush();
+        }
+
+        void writeInt(int value) throws IOException {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void flushChunk() throws IOException {
+            writeRawInt(mCount);
+            mCrc.reset();
+            mCrc.update(mType);
+            mCrc.update(mBuffer, 0, mCount);
+            mOut.write(mType);
+            mOut.write(mBuffer, 0, mCount);
+            writeRawInt((int) mCrc.getValue());
+            mCount = 0;
+        }
+
+        private void writeRawInt(int value) throws IOException {
+            mOut.write(value >>> 24);
+            mOut.write(value >>> 16);
+            mOut.write(value >>> 8);
+            mOut.write(value);
+        }
+    }
+}
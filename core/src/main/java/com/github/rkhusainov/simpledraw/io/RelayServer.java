@@ -0,0 +1,220 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Reference relay for {@link StrokeSession}s: forwards every frame a participant sends to all
+ * the others, prefixed with the sender's number. Frames are not decoded. A participant that
+ * falls more than {@link #MAX_QUEUED_FRAMES} frames behind is disconnected rather than slowing
+ * down the rest.
+ * <p>
+ * Listens on the loopback interface unless told otherwise, so throughput and latency can be
+ * tested with no network: {@code ./gradlew :core:runRelay}.
+ */
+public class RelayServer implements Closeable {
+    public static final int DEFAULT_PORT = 7717;
+    static final int MAX_QUEUED_FRAMES = 1024;
+
+    private final ServerSocket mServerSocket;
+    private final List<Client> mClients = new CopyOnWriteArrayList<>();
+    private volatile boolean mClosed;
+    private int mNextSender = 1;
+
+    /**
+     * Binds to {@code port} on the loopback interface; 0 picks a free port.
+     */
+    public RelayServer(int port) throws IOException {
+        this(InetAddress.getLoopbackAddress(), port);
+    }
+
+    public RelayServer(InetAddress address, int port) throws IOException {
+        mServerSocket = new ServerSocket(port, 50, address);
+    }
+
+    public int getPort() {
+        return mServerSocket.getLocalPort();
+    }
+
+    public int getClientCount() {
+        return mClients.size();
+    }
+
+    /**
+     * Starts accepting participants on a background thread.
+     */
+    public void start() {
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptClients();
+            }
+        }, "RelayServer acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mClosed = true;
+        mServerSocket.close();
+        for (Client client : mClients) {
+            client.close();
+        }
+    }
+
+    private void acceptClients() {
+        while (!mClosed) {
+            Socket socket;
+            try {
+                socket = mServerSocket.accept();
+            } catch (IOException e) {
+                if (!mClosed) {
+                    System.err.println("Relay stopped: " + e);
+                }
+                return;
+            }
+            try {
+                socket.setTcpNoDelay(true);
+                new Client(socket, mNextSender++).start();
+            } catch (IOException e) {
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    // рассылает кадр всем, кроме отправителя
+    private void forward(Client sender, byte[] frame) {
+        for (Client client : mClients) {
+            if (client != sender && !client.mQueue.offer(frame)) {
+                // не успевает читать: лучше отключить одного, чем копить память
+                client.close();
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Usage: {@code RelayServer [port [bind address]]}. Without an address only this machine
+     * can connect.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        RelayServer server = args.length > 1
+                ? new RelayServer(InetAddress.getByName(args[1]), port)
+                : new RelayServer(port);
+        System.out.println("Relay listening on " + server.mServerSocket.getLocalSocketAddress());
+        server.acceptClients();
+    }
+
+    private class Client {
+        final Socket mSocket;
+        final int mSender;
+        final BlockingQueue<byte[]> mQueue = new ArrayBlockingQueue<>(MAX_QUEUED_FRAMES);
+        final InputStream mIn;
+        final OutputStream mOut;
+        Thread mWriter;
+
+        Client(Socket socket, int sender) throws IOException {
+            mSocket = socket;
+            mSender = sender;
+            mIn = new BufferedInputStream(socket.getInputStream());
+            mOut = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        void start() {
+            Thread reader = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    readFrames();
+                }
+            }, "RelayServer reader " + mSender);
+            mWriter = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    writeFrames();
+                }
+            }, "RelayServer writer " + mSender);
+            reader.setDaemon(true);
+            mWriter.setDaemon(true);
+            reader.start();
+        }
+
+        void readFrames() {
+            try {
+                StrokeProtocol.readHello(mIn);
+                StrokeProtocol.writeHello(mOut);
+                // рассылка начинается только после приветствия
+                mClients.add(this);
+                mWriter.start();
+                SceneFormat.Encoder prefix = new SceneFormat.Encoder();
+                while (true) {
+                    int length = StrokeProtocol.readFrameLength(mIn);
+                    if (length < 0) {
+                        break;
+                    }
+                    // длина и номер отправителя перед кадром, как его увидят остальные
+                    prefix.reset();
+                    prefix.writeVarInt(mSender);
+                    int payload = prefix.size() + length;
+                    prefix.reset();
+                    prefix.writeVarInt(payload);
+                    prefix.writeVarInt(mSender);
+                    byte[] frame = new byte[prefix.size() + length];
+                    prefix.copyTo(frame);
+                    StrokeProtocol.readFully(mIn, frame, prefix.size(), length);
+                    forward(this, frame);
+                }
+            } catch (SocketException e) {
+                // закрыт нами или участником
+            } catch (IOException e) {
+                if (!mClosed) {
+                    System.err.println("Participant " + mSender + " dropped: " + e);
+                }
+            } finally {
+                close();
+            }
+        }
+
+        void writeFrames() {
+            try {
+                while (true) {
+                    byte[] frame = mQueue.take();
+                    mOut.write(frame);
+                    // пока есть ещё кадры, копим их в буфере
+                    if (mQueue.isEmpty()) {
+                        mOut.flush();
+                    }
+                }
+            } catch (InterruptedException | IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            mClients.remove(this);
+            closeQuietly(mSocket);
+            if (mWriter != null) {
+                mWriter.interrupt();
+            }
+        }
+    }
+}
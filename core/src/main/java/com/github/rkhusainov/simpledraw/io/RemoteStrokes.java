@@ -0,0 +1,83 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Curve;
+import com.github.rkhusainov.simpledraw.model.PointBuffer;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Strokes other participants are drawing right now, built up op by op. Finished ones are
+ * handed back to go into the scene. Not thread safe.
+ */
+public class RemoteStrokes {
+    private final Map<Long, Curve> mStrokes = new LinkedHashMap<>();
+    private final Bounds mSegment = new Bounds();
+
+    /**
+     * Applies a begin, move, end or shape op; clear has to be handled by the caller.
+     * {@code dirty} gets the area that changed on screen, empty if none.
+     *
+     * @return a shape that is now finished and goes on top of the scene, or null
+     */
+    public Shape apply(StrokeOp op, Bounds dirty) {
+        dirty.setEmpty();
+        switch (op.getType()) {
+            case StrokeOp.TYPE_BEGIN: {
+                PointBuffer points = op.getPoints();
+                Curve curve = new Curve(points.getX(0), points.getY(0), op.getColor());
+                curve.setStrokeWidth(op.getStrokeWidth());
+                mStrokes.put(op.getStroke(), curve);
+                curve.getBounds(dirty);
+                return null;
+            }
+            case StrokeOp.TYPE_MOVE: {
+                Curve curve = mStrokes.get(op.getStroke());
+                if (curve == null) {
+                    return null;
+                }
+                PointBuffer points = op.getPoints();
+                for (int i = 0; i < points.size(); i++) {
+                    curve.dragTo(points.getX(i), points.getY(i), mSegment);
+                    if (mSegment.isEmpty()) {
+                        continue;
+                    }
+                    if (dirty.isEmpty()) {
+                        dirty.set(mSegment);
+                    } else {
+                        dirty.union(mSegment);
+                    }
+                }
+                return null;
+            }
+            case StrokeOp.TYPE_END: {
+                Curve curve = mStrokes.remove(op.getStroke());
+                if (curve == null) {
+                    return null;
+                }
+                curve.seal();
+                curve.getBounds(dirty);
+                return curve;
+            }
+            case StrokeOp.TYPE_SHAPE:
+                op.getShape().getBounds(dirty);
+                return op.getShape();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Strokes in progress, in the order they were started.
+     */
+    public Collection<Curve> getStrokes() {
+        return mStrokes.values();
+    }
+
+    public void clear() {
+        mStrokes.clear();
+    }
+}
@@ -0,0 +1,330 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Box;
+import com.github.rkhusainov.simpledraw.model.Curve;
+import com.github.rkhusainov.simpledraw.model.Line;
+import com.github.rkhusainov.simpledraw.model.PointBuffer;
+import com.github.rkhusainov.simpledraw.model.Polygon;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary scene format, version 3. All multi-byte values are big-endian.
+ *
+ * <pre>
+ * header:      int magic "SDRW", int version, int quantum (coordinate steps per px)
+ * shape:       byte type (1-4), int color, float stroke width,
+ *              varint point count, varint payload length,
+ *              4 x zigzag varint bounds (left, top, right, bottom; stroke included),
+ *              payload: zigzag varint x, y per point, each relative to the previous one
+ * clear:       byte 5; drops the shapes before it
+ * view:        byte 6, float scale, float translate x, float translate y
+ * generation:  byte 7, long generation of the snapshot a journal continues
+ * remove:      byte 8, varint index of the removed shape, counted from the bottom
+ * insert:      byte 9, varint index counted from the bottom, followed by a shape record
+ *              that goes to that index instead of the top
+ * </pre>
+ *
+ * Records are appended one per operation. The payload length lets a reader index the file
+ * without decoding points; a truncated last record is ignored. Version 1 files are the
+ * same without the operation records, version 2 files have no insert records.
+ */
+final class SceneFormat {
+    static final int MAGIC = 0x53445257;
+    static final int VERSION = 3;
+    static final int MIN_VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    // координаты хранятся с шагом 1/8 px
+    static final int QUANTUM = 8;
+
+    static final byte TYPE_CURVE = 1;
+    static final byte TYPE_LINE = 2;
+    static final byte TYPE_BOX = 3;
+    static final byte TYPE_POLY = 4;
+    static final byte TYPE_CLEAR = 5;
+    static final byte TYPE_VIEW = 6;
+    static final byte TYPE_GENERATION = 7;
+    static final byte TYPE_REMOVE = 8;
+    static final byte TYPE_INSERT = 9;
+
+    private SceneFormat() {
+    }
+
+    static int quantize(float value) {
+        return Math.round(value * QUANTUM);
+    }
+
+    static float dequantize(int value) {
+        return (float) value / QUANTUM;
+    }
+
+    static byte typeOf(Shape shape) {
+        if (shape instanceof Curve) {
+            return TYPE_CURVE;
+        } else if (shape instanceof Line) {
+            return TYPE_LINE;
+        } else if (shape instanceof Box) {
+            return TYPE_BOX;
+        } else if (shape instanceof Polygon) {
+            return TYPE_POLY;
+        }
+        throw new IllegalArgumentException("Unsupported shape " + shape.getClass().getName());
+    }
+
+    /**
+     * Copies the vertices that define the shape into {@code out}.
+     */
+    static void getPoints(Shape shape, PointBuffer out) {
+        out.clear();
+        if (shape instanceof Curve) {
+            PointBuffer points = ((Curve) shape).getPoints();
+            for (int i = 0; i < points.size(); i++) {
+                out.add(points.getX(i), points.getY(i));
+            }
+        } else if (shape instanceof Line) {
+            Line line = (Line) shape;
+            out.add(line.getStartX(), line.getStartY());
+            out.add(line.getEndX(), line.getEndY());
+        } else if (shape instanceof Box) {
+            Box box = (Box) shape;
+            out.add(box.getOriginX(), box.getOriginY());
+            out.add(box.getCurrentX(), box.getCurrentY());
+        } else if (shape instanceof Polygon) {
+            PointBuffer points = ((Polygon) shape).getPoints();
+            for (int i = 0; i < points.size(); i++) {
+                out.add(points.getX(i), points.getY(i));
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported shape " + shape.getClass().getName());
+        }
+    }
+
+    /**
+     * Appends a shape record to {@code out}; the other arguments are scratch space.
+     */
+    static void encodeShape(Shape shape, Encoder out, Encoder payload, PointBuffer points, Bounds bounds) {
+        getPoints(shape, points);
+        payload.reset();
+        int lastX = 0;
+        int lastY = 0;
+        for (int i = 0; i < points.size(); i++) {
+            int x = quantize(points.getX(i));
+            int y = quantize(points.getY(i));
+            payload.writeZigZag(x - lastX);
+            payload.writeZigZag(y - lastY);
+            lastX = x;
+            lastY = y;
+        }
+
+        shape.getBounds(bounds);
+        out.writeByte(typeOf(shape));
+        out.writeInt(shape.getColor());
+        out.writeFloat(shape.getStrokeWidth());
+        out.writeVarInt(points.size());
+        out.writeVarInt(payload.size());
+        out.writeBounds(bounds);
+        payload.writeTo(out);
+    }
+
+    static Shape createShape(byte type, int color, float strokeWidth, PointBuffer points) throws IOException {
+        if (points.isEmpty()) {
+            throw new IOException("Shape without points");
+        }
+        float x = points.getX(0);
+        float y = points.getY(0);
+        int last = points.size() - 1;
+        switch (type) {
+            case TYPE_CURVE:
+                return Curve.fromPoints(points, color, strokeWidth);
+            case TYPE_LINE:
+                Line line = new Line(x, y, color);
+                line.setStrokeWidth(strokeWidth);
+                line.setEnd(points.getX(last), points.getY(last));
+                return line;
+            case TYPE_BOX:
+                Box box = new Box(x, y, color);
+                box.setCurrent(points.getX(last), points.getY(last));
+                return box;
+            case TYPE_POLY:
+                // толщина линии у многоугольника фиксированная
+                Polygon figure = new Polygon(color);
+                for (int i = 0; i < points.size(); i++) {
+                    figure.addPoint(points.getX(i), points.getY(i));
+                }
+                return figure;
+            default:
+                throw new IOException("Unknown shape type " + type);
+        }
+    }
+
+    /**
+     * Growable byte array the writer encodes records into.
+     */
+    static final class Encoder {
+        private byte[] mBytes = new byte[256];
+        private int mSize;
+
+        void reset() {
+            mSize = 0;
+        }
+
+        int size() {
+            return mSize;
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            mBytes[mSize++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensureCapacity(4);
+            mBytes[mSize++] = (byte) (value >>> 24);
+            mBytes[mSize++] = (byte) (value >>> 16);
+            mBytes[mSize++] = (byte) (value >>> 8);
+            mBytes[mSize++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        void writeFloat(float value) {
+            writeInt(Float.floatToIntBits(value));
+        }
+
+        void writeVarInt(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                mBytes[mSize++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            mBytes[mSize++] = (byte) value;
+        }
+
+        void writeZigZag(int value) {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        void writeBounds(Bounds bounds) {
+            writeZigZag((int) Math.floor(bounds.left * QUANTUM));
+            writeZigZag((int) Math.floor(bounds.top * QUANTUM));
+            writeZigZag((int) Math.ceil(bounds.right * QUANTUM));
+            writeZigZag((int) Math.ceil(bounds.bottom * QUANTUM));
+        }
+
+        void writeTo(Encoder other) {
+            other.ensureCapacity(mSize);
+            System.arraycopy(mBytes, 0, other.mBytes, other.mSize, mSize);
+            other.mSize += mSize;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(mBytes, 0, mSize);
+        }
+
+        void copyTo(byte[] bytes) {
+            System.arraycopy(mBytes, 0, bytes, 0, mSize);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (mSize + extra > mBytes.length) {
+                byte[] bytes = new byte[Math.max(mBytes.length * 2, mSize + extra)];
+                System.arraycopy(mBytes, 0, bytes, 0, mSize);
+                mBytes = bytes;
+            }
+        }
+    }
+
+    /**
+     * Reads with absolute offsets, so several cursors can share one buffer.
+     */
+    static final class Cursor {
+        private final ByteBuffer mBuffer;
+        private int mPosition;
+
+        Cursor(ByteBuffer buffer, int position) {
+            mBuffer = buffer;
+            mPosition = position;
+        }
+
+        int position() {
+            return mPosition;
+        }
+
+        void skip(int count) {
+            mPosition += count;
+        }
+
+        int remaining() {
+            return mBuffer.limit() - mPosition;
+        }
+
+        byte peekByte() throws IOException {
+            require(1);
+            return mBuffer.get(mPosition);
+        }
+
+        byte readByte() throws IOException {
+            require(1);
+            return mBuffer.get(mPosition++);
+        }
+
+        int readInt() throws IOException {
+            require(4);
+            int value = mBuffer.getInt(mPosition);
+            mPosition += 4;
+            return value;
+        }
+
+        long readLong() throws IOException {
+            require(8);
+            long value = mBuffer.getLong(mPosition);
+            mPosition += 8;
+            return value;
+        }
+
+        float readFloat() throws IOException {
+            return Float.intBitsToFloat(readInt());
+        }
+
+        int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        int readZigZag() throws IOException {
+            int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private void require(int count) throws IOException {
+            if (mPosition + count > mBuffer.limit()) {
+                throw new TruncatedException();
+            }
+        }
+    }
+
+    /**
+     * Thrown when a record runs past the end of the data, e.g. after a crash mid-write.
+     */
+    static final class TruncatedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        TruncatedException() {
+            super("Unexpected end of data");
+        }
+    }
+}
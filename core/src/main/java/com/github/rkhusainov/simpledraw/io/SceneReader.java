@@ -0,0 +1,164 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import com.github.rkhusainov.simpledraw.model.Scene;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opens a file in the {@link SceneFormat binary scene format}. The file is memory-mapped and
+ * only record headers are read up front; points are decoded when a shape is first drawn or
+ * hit-tested, so opening costs time proportional to the number of shapes, not points.
+ */
+public class SceneReader {
+    private final List<StoredShape> mShapes;
+    // длина файла без оборванной последней записи
+    private final long mValidLength;
+    // scale, translateX, translateY последней записи вида или null
+    private float[] mView;
+    private long mGeneration;
+
+    SceneReader(ByteBuffer buffer, SceneReader base) throws IOException {
+        if (base != null) {
+            mShapes = new ArrayList<>(base.mShapes);
+            mView = base.mView;
+        } else {
+            mShapes = new ArrayList<>();
+        }
+
+        SceneFormat.Cursor cursor = new SceneFormat.Cursor(buffer, 0);
+        if (cursor.remaining() < SceneFormat.HEADER_SIZE || cursor.readInt() != SceneFormat.MAGIC) {
+            throw new IOException("Not a scene file");
+        }
+        int version = cursor.readInt();
+        if (version < SceneFormat.MIN_VERSION || version > SceneFormat.VERSION) {
+            throw new IOException("Unsupported scene version " + version);
+        }
+        if (cursor.readInt() != SceneFormat.QUANTUM) {
+            throw new IOException("Unsupported coordinate quantum");
+        }
+
+        int validEnd = cursor.position();
+        try {
+            while (cursor.remaining() > 0) {
+                readRecord(buffer, cursor);
+                validEnd = cursor.position();
+            }
+        } catch (SceneFormat.TruncatedException e) {
+            // запись оборвалась на середине, всё до неё читается нормально
+        }
+        mValidLength = validEnd;
+    }
+
+    private void readRecord(ByteBuffer buffer, SceneFormat.Cursor cursor) throws IOException {
+        switch (cursor.peekByte()) {
+            case SceneFormat.TYPE_CLEAR:
+                cursor.readByte();
+                mShapes.clear();
+                break;
+            case SceneFormat.TYPE_VIEW:
+                cursor.readByte();
+                float scale = cursor.readFloat();
+                float translateX = cursor.readFloat();
+                float translateY = cursor.readFloat();
+                mView = new float[]{scale, translateX, translateY};
+                break;
+            case SceneFormat.TYPE_REMOVE:
+                int start = cursor.position();
+                cursor.readByte();
+                int index = cursor.readVarInt();
+                if (index < 0 || index >= mShapes.size()) {
+                    throw new IOException("Malformed remove record at " + start);
+                }
+                mShapes.remove(index);
+                break;
+            case SceneFormat.TYPE_INSERT:
+                int insertStart = cursor.position();
+                cursor.readByte();
+                int insertIndex = cursor.readVarInt();
+                if (insertIndex < 0 || insertIndex > mShapes.size()) {
+                    throw new IOException("Malformed insert record at " + insertStart);
+                }
+                mShapes.add(insertIndex, StoredShape.read(buffer, cursor));
+                break;
+            case SceneFormat.TYPE_GENERATION:
+                cursor.readByte();
+                mGeneration = cursor.readLong();
+                break;
+            default:
+                mShapes.add(StoredShape.read(buffer, cursor));
+        }
+    }
+
+    /**
+     * Maps the file read-only. The mapping stays valid after the file is replaced by
+     * {@link SceneWriter#create} or {@link SceneWriter#save}.
+     */
+    public static SceneReader open(File file) throws IOException {
+        return open(file, null);
+    }
+
+    /**
+     * Opens a file that continues another one, e.g. a journal on top of its snapshot: the
+     * shapes and view of {@code base} are the starting point for the records of this file.
+     */
+    public static SceneReader open(File file, SceneReader base) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Scene file is too large");
+            }
+            return new SceneReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), base);
+        } finally {
+            raf.close();
+        }
+    }
+
+    public int getShapeCount() {
+        return mShapes.size();
+    }
+
+    public StoredShape getShape(int index) {
+        return mShapes.get(index);
+    }
+
+    /**
+     * Length of the well-formed part of the file, to pass to {@link SceneWriter#append}.
+     */
+    public long getValidLength() {
+        return mValidLength;
+    }
+
+    /**
+     * Copies the last recorded view as scale, translate x, translate y.
+     *
+     * @return false if the file has no view record
+     */
+    public boolean getView(float[] out) {
+        if (mView == null) {
+            return false;
+        }
+        System.arraycopy(mView, 0, out, 0, mView.length);
+        return true;
+    }
+
+    public long getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * Adds every stored shape to the scene, in file order, without decoding any points.
+     */
+    public void readInto(Scene scene) {
+        for (int i = 0; i < mShapes.size(); i++) {
+            scene.add(mShapes.get(i));
+        }
+    }
+}
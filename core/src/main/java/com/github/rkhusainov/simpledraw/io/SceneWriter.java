@@ -0,0 +1,189 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.PointBuffer;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Streams shapes into the {@link SceneFormat binary scene format}, one record per shape.
+ * Not thread safe.
+ */
+public class SceneWriter implements Closeable, Flushable {
+    private final OutputStream mOut;
+
+    private SceneFormat.Encoder mRecord = new SceneFormat.Encoder();
+    private SceneFormat.Encoder mPayload = new SceneFormat.Encoder();
+    private PointBuffer mPoints = new PointBuffer();
+    private Bounds mBounds = new Bounds();
+    private long mBytesWritten;
+
+    /**
+     * Starts a new scene in {@code out}, header included.
+     */
+    public SceneWriter(OutputStream out) throws IOException {
+        this(out, true);
+    }
+
+    private SceneWriter(OutputStream out, boolean writeHeader) throws IOException {
+        mOut = out;
+        if (writeHeader) {
+            mRecord.writeInt(SceneFormat.MAGIC);
+            mRecord.writeInt(SceneFormat.VERSION);
+            mRecord.writeInt(SceneFormat.QUANTUM);
+            flushRecord();
+        }
+    }
+
+    /**
+     * Starts an empty scene file. The old file, if any, is replaced by a rename rather than
+     * truncated, so a {@link SceneReader} that still maps it keeps reading valid data.
+     */
+    public static SceneWriter create(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            SceneWriter writer = new SceneWriter(new BufferedOutputStream(out), true);
+            writer.flush();
+            if (!temp.renameTo(file)) {
+                throw new IOException("Cannot rename " + temp + " to " + file);
+            }
+            // поток по-прежнему пишет в тот же файл, уже под новым именем
+            return writer;
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Continues a scene file previously checked by {@link SceneReader}. Anything after
+     * {@code validLength}, such as a record cut short by a crash, is dropped first.
+     */
+    public static SceneWriter append(File file, long validLength) throws IOException {
+        FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            if (out.getChannel().size() > validLength) {
+                out.getChannel().truncate(validLength);
+            }
+            SceneWriter writer = new SceneWriter(new BufferedOutputStream(out), false);
+            writer.mBytesWritten = validLength;
+            return writer;
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a whole scene to {@code file} through a temporary file, so the old contents
+     * survive a failed save.
+     */
+    public static void save(Iterable<Shape> shapes, File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        SceneWriter writer = new SceneWriter(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            for (Shape shape : shapes) {
+                writer.write(shape);
+            }
+        } finally {
+            writer.close();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Cannot rename " + temp + " to " + file);
+        }
+    }
+
+    public void write(Shape shape) throws IOException {
+        if (shape instanceof StoredShape) {
+            // запись уже закодирована, копируем байты как есть
+            mBytesWritten += ((StoredShape) shape).writeRecord(mOut);
+            return;
+        }
+
+        mRecord.reset();
+        SceneFormat.encodeShape(shape, mRecord, mPayload, mPoints, mBounds);
+        flushRecord();
+    }
+
+    /**
+     * Records that the shapes written so far were cleared.
+     */
+    public void writeClear() throws IOException {
+        mRecord.reset();
+        mRecord.writeByte(SceneFormat.TYPE_CLEAR);
+        flushRecord();
+    }
+
+    /**
+     * Records the view transform: uniform scale followed by a translation.
+     */
+    public void writeView(float scale, float translateX, float translateY) throws IOException {
+        mRecord.reset();
+        mRecord.writeByte(SceneFormat.TYPE_VIEW);
+        mRecord.writeFloat(scale);
+        mRecord.writeFloat(translateX);
+        mRecord.writeFloat(translateY);
+        flushRecord();
+    }
+
+    /**
+     * Records that the shape at {@code index}, counted from the bottom, was removed.
+     */
+    public void writeRemove(int index) throws IOException {
+        mRecord.reset();
+        mRecord.writeByte(SceneFormat.TYPE_REMOVE);
+        mRecord.writeVarInt(index);
+        flushRecord();
+    }
+
+    /**
+     * Records a shape put at {@code index}, counted from the bottom, instead of on top.
+     */
+    public void writeInsert(int index, Shape shape) throws IOException {
+        mRecord.reset();
+        mRecord.writeByte(SceneFormat.TYPE_INSERT);
+        mRecord.writeVarInt(index);
+        flushRecord();
+        // читатель считает вставку с фигурой одной записью, обрыв между ними не страшен
+        write(shape);
+    }
+
+    public void writeGeneration(long generation) throws IOException {
+        mRecord.reset();
+        mRecord.writeByte(SceneFormat.TYPE_GENERATION);
+        mRecord.writeLong(generation);
+        flushRecord();
+    }
+
+    /**
+     * Size of the file so far, including what was there before {@link #append}.
+     */
+    public long getBytesWritten() {
+        return mBytesWritten;
+    }
+
+    // запись уходит в поток целиком, без перемежения с другими
+    private void flushRecord() throws IOException {
+        mRecord.writeTo(mOut);
+        mBytesWritten += mRecord.size();
+        mRecord.reset();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        mOut.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        mOut.close();
+    }
+}
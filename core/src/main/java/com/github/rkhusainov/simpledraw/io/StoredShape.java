@@ -0,0 +1,138 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.PointBuffer;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Committed shape backed by a record of a mapped scene file. Color, stroke width and bounds
+ * come from the record header; the points are decoded into a regular shape on first use.
+ */
+public class StoredShape implements Shape {
+    private final ByteBuffer mBuffer;
+    private final int mRecordOffset;
+    private final int mRecordLength;
+    private final int mPayloadOffset;
+
+    private final byte mType;
+    private final int mColor;
+    private final float mStrokeWidth;
+    private final int mPointCount;
+    private final float mLeft;
+    private final float mTop;
+    private final float mRight;
+    private final float mBottom;
+
+    // volatile: экспорт декодирует из своих потоков, двойное декодирование безвредно
+    private volatile Shape mDecoded;
+
+    private StoredShape(ByteBuffer buffer, int recordOffset, SceneFormat.Cursor cursor) throws IOException {
+        mBuffer = buffer;
+        mRecordOffset = recordOffset;
+        mType = cursor.readByte();
+        if (mType < SceneFormat.TYPE_CURVE || mType > SceneFormat.TYPE_POLY) {
+            throw new IOException("Unknown record type " + mType + " at " + recordOffset);
+        }
+        mColor = cursor.readInt();
+        mStrokeWidth = cursor.readFloat();
+        mPointCount = cursor.readVarInt();
+        int payloadLength = cursor.readVarInt();
+        mLeft = SceneFormat.dequantize(cursor.readZigZag());
+        mTop = SceneFormat.dequantize(cursor.readZigZag());
+        mRight = SceneFormat.dequantize(cursor.readZigZag());
+        mBottom = SceneFormat.dequantize(cursor.readZigZag());
+        mPayloadOffset = cursor.position();
+        // каждая точка занимает хотя бы два байта
+        if (payloadLength < 0 || mPointCount < 0 || mPointCount > payloadLength / 2) {
+            throw new IOException("Malformed record at " + recordOffset);
+        }
+        if (payloadLength > cursor.remaining()) {
+            throw new SceneFormat.TruncatedException();
+        }
+        cursor.skip(payloadLength);
+        mRecordLength = cursor.position() - recordOffset;
+    }
+
+    static StoredShape read(ByteBuffer buffer, SceneFormat.Cursor cursor) throws IOException {
+        return new StoredShape(buffer, cursor.position(), cursor);
+    }
+
+    /**
+     * Decodes the points into a regular shape. The result is cached.
+     */
+    public Shape decode() {
+        Shape decoded = mDecoded;
+        if (decoded == null) {
+            try {
+                decoded = decodePoints();
+            } catch (IOException e) {
+                // заголовок уже прочитан при открытии, значит файл испорчен внутри записи
+                throw new IllegalStateException("Corrupt record at " + mRecordOffset, e);
+            }
+            mDecoded = decoded;
+        }
+        return decoded;
+    }
+
+    public int getPointCount() {
+        return mPointCount;
+    }
+
+    @Override
+    public int getColor() {
+        return mColor;
+    }
+
+    @Override
+    public float getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    @Override
+    public void getBounds(Bounds out) {
+        out.set(mLeft, mTop, mRight, mBottom);
+    }
+
+    @Override
+    public boolean hitTest(float x, float y, float tolerance) {
+        if (x < mLeft - tolerance || x > mRight + tolerance || y < mTop - tolerance || y > mBottom + tolerance) {
+            return false;
+        }
+        return decode().hitTest(x, y, tolerance);
+    }
+
+    @Override
+    public void dragTo(float x, float y, Bounds dirty) {
+        throw new IllegalStateException("Stored shapes are sealed");
+    }
+
+    @Override
+    public void seal() {
+    }
+
+    int writeRecord(OutputStream out) throws IOException {
+        byte[] bytes = new byte[mRecordLength];
+        ByteBuffer record = mBuffer.duplicate();
+        record.position(mRecordOffset);
+        record.get(bytes);
+        out.write(bytes);
+        return mRecordLength;
+    }
+
+    private Shape decodePoints() throws IOException {
+        SceneFormat.Cursor cursor = new SceneFormat.Cursor(mBuffer, mPayloadOffset);
+        PointBuffer points = new PointBuffer(mPointCount);
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < mPointCount; i++) {
+            x += cursor.readZigZag();
+            y += cursor.readZigZag();
+            points.add(SceneFormat.dequantize(x), SceneFormat.dequantize(y));
+        }
+        return SceneFormat.createShape(mType, mColor, mStrokeWidth, points);
+    }
+}
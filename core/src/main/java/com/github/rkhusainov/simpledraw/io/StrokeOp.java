@@ -0,0 +1,64 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import com.github.rkhusainov.simpledraw.model.PointBuffer;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+/**
+ * One operation received from another participant of a {@link StrokeSession}.
+ */
+public class StrokeOp {
+    public static final int TYPE_BEGIN = StrokeProtocol.OP_BEGIN;
+    public static final int TYPE_MOVE = StrokeProtocol.OP_MOVE;
+    public static final int TYPE_END = StrokeProtocol.OP_END;
+    public static final int TYPE_SHAPE = StrokeProtocol.OP_SHAPE;
+    public static final int TYPE_CLEAR = StrokeProtocol.OP_CLEAR;
+
+    private final int mType;
+    private final long mStroke;
+    private final int mColor;
+    private final float mStrokeWidth;
+    private final PointBuffer mPoints;
+    private final Shape mShape;
+
+    StrokeOp(int type, long stroke, int color, float strokeWidth, PointBuffer points, Shape shape) {
+        mType = type;
+        mStroke = stroke;
+        mColor = color;
+        mStrokeWidth = strokeWidth;
+        mPoints = points;
+        mShape = shape;
+    }
+
+    public int getType() {
+        return mType;
+    }
+
+    /**
+     * Stroke the op belongs to, unique across senders.
+     */
+    public long getStroke() {
+        return mStroke;
+    }
+
+    public int getColor() {
+        return mColor;
+    }
+
+    public float getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    /**
+     * The first point for begin, the new points for move, null otherwise.
+     */
+    public PointBuffer getPoints() {
+        return mPoints;
+    }
+
+    /**
+     * The finished shape for {@link #TYPE_SHAPE}, null otherwise.
+     */
+    public Shape getShape() {
+        return mShape;
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Wire protocol of a shared drawing session, version 1. Big-endian, coordinates quantized
+ * like in the {@link SceneFormat scene format}.
+ *
+ * <pre>
+ * hello:   int magic "SDRL", int version; each side sends it once after connecting
+ * frame:   varint length, then the ops; frames from the relay start with varint sender
+ * begin:   byte 1, varint stroke, int color, float stroke width, zigzag varint x, y
+ * move:    byte 2, varint stroke, varint point count,
+ *          zigzag varint x, y per point, each relative to the previous point of the stroke
+ * end:     byte 3, varint stroke
+ * shape:   byte 4, a shape record of the scene format
+ * clear:   byte 5
+ * </pre>
+ *
+ * Strokes are numbered by their sender; the relay tells senders apart, not the ops.
+ */
+final class StrokeProtocol {
+    static final int MAGIC = 0x5344524C;
+    static final int VERSION = 1;
+    // больше кадр быть не может: защита от мусора вместо длины
+    static final int MAX_FRAME = 1 << 20;
+
+    static final byte OP_BEGIN = 1;
+    static final byte OP_MOVE = 2;
+    static final byte OP_END = 3;
+    static final byte OP_SHAPE = 4;
+    static final byte OP_CLEAR = 5;
+
+    private StrokeProtocol() {
+    }
+
+    static void writeHello(OutputStream out) throws IOException {
+        SceneFormat.Encoder hello = new SceneFormat.Encoder();
+        hello.writeInt(MAGIC);
+        hello.writeInt(VERSION);
+        hello.writeTo(out);
+        out.flush();
+    }
+
+    static void readHello(InputStream in) throws IOException {
+        byte[] hello = new byte[8];
+        readFully(in, hello, 0, hello.length);
+        int magic = (hello[0] & 0xFF) << 24 | (hello[1] & 0xFF) << 16 | (hello[2] & 0xFF) << 8 | (hello[3] & 0xFF);
+        int version = (hello[4] & 0xFF) << 24 | (hello[5] & 0xFF) << 16 | (hello[6] & 0xFF) << 8 | (hello[7] & 0xFF);
+        if (magic != MAGIC) {
+            throw new IOException("Not a drawing session");
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported protocol version " + version);
+        }
+    }
+
+    /**
+     * Reads the length prefix of the next frame.
+     *
+     * @return the length or -1 at the end of the stream
+     */
+    static int readFrameLength(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (shift == 0) {
+                    return -1;
+                }
+                throw new EOFException("Frame cut short");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0 || value > MAX_FRAME) {
+                    throw new IOException("Bad frame length " + value);
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed frame length");
+    }
+
+    static void readFully(InputStream in, byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            int read = in.read(bytes, offset, length);
+            if (read < 0) {
+                throw new EOFException("Frame cut short");
+            }
+            offset += read;
+            length -= read;
+        }
+    }
+}
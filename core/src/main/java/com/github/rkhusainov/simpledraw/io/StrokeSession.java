@@ -0,0 +1,405 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.PointBuffer;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One participant of a shared drawing, connected to a {@link RelayServer}. Local strokes are
+ * streamed as {@link StrokeProtocol} ops: points of a stroke in progress are coalesced into
+ * frames sent at most {@code frameMillis} after the first of them, other ops go out at once
+ * together with whatever is pending. Ops of the other participants are read on a thread of
+ * the session and queued for {@link #poll()}.
+ * <p>
+ * Sending methods may be called from any thread. They never block on the network.
+ */
+public class StrokeSession implements Closeable {
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private final Socket mSocket;
+    private final OutputStream mOut;
+    private final InputStream mIn;
+    private final long mFrameNanos;
+    private final Listener mListener;
+
+    private final Object mLock = new Object();
+    // закодированные операции, которые уйдут следующим кадром
+    private final SceneFormat.Encoder mPending = new SceneFormat.Encoder();
+    private boolean mHasPending;
+    private boolean mFlushNow;
+    private long mFrameStart;
+    private boolean mClosed;
+    private boolean mDisconnected;
+    // точки одной кривой копятся здесь и кодируются одной операцией
+    private int mMoveStroke = -1;
+    private final PointBuffer mMovePoints = new PointBuffer();
+    // последняя отправленная точка каждой кривой, от неё считаются смещения
+    private final Map<Integer, int[]> mSentPoints = new HashMap<>();
+    private int mNextStroke;
+
+    private final SceneFormat.Encoder mShapePayload = new SceneFormat.Encoder();
+    private final PointBuffer mShapePoints = new PointBuffer();
+    private final Bounds mShapeBounds = new Bounds();
+
+    private final Queue<StrokeOp> mReceived = new ConcurrentLinkedQueue<>();
+    // последняя полученная точка каждой чужой кривой; только для потока чтения
+    private final Map<Long, int[]> mReceivedPoints = new HashMap<>();
+
+    private StrokeSession(Socket socket, int frameMillis, Listener listener) throws IOException {
+        mSocket = socket;
+        mOut = new BufferedOutputStream(socket.getOutputStream());
+        mIn = new BufferedInputStream(socket.getInputStream());
+        mFrameNanos = TimeUnit.MILLISECONDS.toNanos(frameMillis);
+        mListener = listener;
+    }
+
+    /**
+     * Connects to a relay and starts the session threads. Blocking; call it off the UI thread.
+     *
+     * @param frameMillis longest time points of a stroke wait to be sent
+     * @param listener    called on the session's threads
+     */
+    public static StrokeSession connect(String host, int port, int frameMillis, Listener listener)
+            throws IOException {
+        Socket socket = new Socket();
+        try {
+            // кадры собираем сами, Nagle только добавил бы задержку
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            StrokeSession session = new StrokeSession(socket, frameMillis, listener);
+            StrokeProtocol.writeHello(session.mOut);
+            StrokeProtocol.readHello(session.mIn);
+            session.start();
+            return session;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts a stroke at the given point.
+     *
+     * @return number of the stroke for {@link #moveStroke} and {@link #endStroke}
+     */
+    public int beginStroke(int color, float strokeWidth, float x, float y) {
+        synchronized (mLock) {
+            int stroke = mNextStroke++;
+            encodeMoves();
+            int qx = SceneFormat.quantize(x);
+            int qy = SceneFormat.quantize(y);
+            mPending.writeByte(StrokeProtocol.OP_BEGIN);
+            mPending.writeVarInt(stroke);
+            mPending.writeInt(color);
+            mPending.writeFloat(strokeWidth);
+            mPending.writeZigZag(qx);
+            mPending.writeZigZag(qy);
+            mSentPoints.put(stroke, new int[]{qx, qy});
+            markPending(false);
+            return stroke;
+        }
+    }
+
+    /**
+     * Adds a point to a stroke; it goes out with the next frame.
+     */
+    public void moveStroke(int stroke, float x, float y) {
+        synchronized (mLock) {
+            if (stroke != mMoveStroke) {
+                encodeMoves();
+                mMoveStroke = stroke;
+            }
+            mMovePoints.add(x, y);
+            markPending(false);
+        }
+    }
+
+    public void endStroke(int stroke) {
+        synchronized (mLock) {
+            encodeMoves();
+            mPending.writeByte(StrokeProtocol.OP_END);
+            mPending.writeVarInt(stroke);
+            mSentPoints.remove(stroke);
+            markPending(true);
+        }
+    }
+
+    /**
+     * Sends a finished shape, e.g. a line or a box, that was not streamed as a stroke.
+     */
+    public void sendShape(Shape shape) {
+        if (shape instanceof StoredShape) {
+            shape = ((StoredShape) shape).decode();
+        }
+        synchronized (mLock) {
+            encodeMoves();
+            mPending.writeByte(StrokeProtocol.OP_SHAPE);
+            SceneFormat.encodeShape(shape, mPending, mShapePayload, mShapePoints, mShapeBounds);
+            markPending(true);
+        }
+    }
+
+    public void sendClear() {
+        synchronized (mLock) {
+            encodeMoves();
+            mPending.writeByte(StrokeProtocol.OP_CLEAR);
+            markPending(true);
+        }
+    }
+
+    /**
+     * @return the next op received from the others or null if there is none yet
+     */
+    public StrokeOp poll() {
+        return mReceived.poll();
+    }
+
+    /**
+     * Sends what is pending and disconnects.
+     */
+    @Override
+    public void close() {
+        synchronized (mLock) {
+            mClosed = true;
+            mLock.notifyAll();
+        }
+    }
+
+    private void start() {
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeFrames();
+            }
+        }, "StrokeSession writer");
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readFrames();
+            }
+        }, "StrokeSession reader");
+        writer.setDaemon(true);
+        reader.setDaemon(true);
+        writer.start();
+        reader.start();
+    }
+
+    // под mLock
+    private void markPending(boolean flushNow) {
+        if (!mHasPending) {
+            // кадр начался: писатель должен узнать, когда его отправить
+            mHasPending = true;
+            mFrameStart = System.nanoTime();
+            mLock.notifyAll();
+        }
+        if (flushNow && !mFlushNow) {
+            mFlushNow = true;
+            mLock.notifyAll();
+        }
+    }
+
+    // под mLock: накопленные точки становятся одной операцией
+    private void encodeMoves() {
+        if (mMovePoints.isEmpty()) {
+            return;
+        }
+        int[] last = mSentPoints.get(mMoveStroke);
+        if (last != null) {
+            mPending.writeByte(StrokeProtocol.OP_MOVE);
+            mPending.writeVarInt(mMoveStroke);
+            mPending.writeVarInt(mMovePoints.size());
+            for (int i = 0; i < mMovePoints.size(); i++) {
+                int x = SceneFormat.quantize(mMovePoints.getX(i));
+                int y = SceneFormat.quantize(mMovePoints.getY(i));
+                mPending.writeZigZag(x - last[0]);
+                mPending.writeZigZag(y - last[1]);
+                last[0] = x;
+                last[1] = y;
+            }
+        }
+        mMovePoints.clear();
+        mMoveStroke = -1;
+    }
+
+    private void writeFrames() {
+        SceneFormat.Encoder frame = new SceneFormat.Encoder();
+        SceneFormat.Encoder length = new SceneFormat.Encoder();
+        IOException error = null;
+        try {
+            while (true) {
+                boolean last;
+                synchronized (mLock) {
+                    while (!mClosed && !frameReady()) {
+                        long waitNanos = mHasPending ? mFrameStart + mFrameNanos - System.nanoTime() : 0;
+                        if (mHasPending) {
+                            TimeUnit.NANOSECONDS.timedWait(mLock, Math.max(1, waitNanos));
+                        } else {
+                            mLock.wait();
+                        }
+                    }
+                    last = mClosed;
+                    encodeMoves();
+                    mPending.writeTo(frame);
+                    mPending.reset();
+                    mHasPending = false;
+                    mFlushNow = false;
+                }
+                if (frame.size() > 0) {
+                    length.reset();
+                    length.writeVarInt(frame.size());
+                    length.writeTo(mOut);
+                    frame.writeTo(mOut);
+                    mOut.flush();
+                    frame.reset();
+                }
+                if (last) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (mLock) {
+                mClosed = true;
+            }
+            try {
+                mSocket.close();
+            } catch (IOException ignored) {
+            }
+        }
+        if (error != null) {
+            reportDisconnected(error);
+        }
+    }
+
+    // под mLock
+    private boolean frameReady() {
+        return mHasPending && (mFlushNow || System.nanoTime() - mFrameStart >= mFrameNanos);
+    }
+
+    private void readFrames() {
+        IOException error = null;
+        try {
+            while (true) {
+                int length = StrokeProtocol.readFrameLength(mIn);
+                if (length < 0) {
+                    break;
+                }
+                byte[] frame = new byte[length];
+                StrokeProtocol.readFully(mIn, frame, 0, length);
+                decodeFrame(frame);
+                mListener.onReceived();
+            }
+        } catch (IOException e) {
+            error = e;
+        }
+        boolean closed;
+        synchronized (mLock) {
+            closed = mClosed;
+            mClosed = true;
+            mLock.notifyAll();
+        }
+        // после close() сокет закрыт нами, это не ошибка
+        if (!closed) {
+            reportDisconnected(error);
+        }
+    }
+
+    // читатель и писатель могут упасть одновременно, слушатель узнаёт один раз
+    private void reportDisconnected(IOException error) {
+        synchronized (mLock) {
+            if (mDisconnected) {
+                return;
+            }
+            mDisconnected = true;
+        }
+        mListener.onDisconnected(error);
+    }
+
+    private void decodeFrame(byte[] frame) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        SceneFormat.Cursor cursor = new SceneFormat.Cursor(buffer, 0);
+        long sender = (long) cursor.readVarInt() << 32;
+        while (cursor.remaining() > 0) {
+            byte type = cursor.readByte();
+            switch (type) {
+                case StrokeProtocol.OP_BEGIN: {
+                    long stroke = sender | cursor.readVarInt();
+                    int color = cursor.readInt();
+                    float strokeWidth = cursor.readFloat();
+                    int[] last = {cursor.readZigZag(), cursor.readZigZag()};
+                    mReceivedPoints.put(stroke, last);
+                    PointBuffer points = new PointBuffer(1);
+                    points.add(SceneFormat.dequantize(last[0]), SceneFormat.dequantize(last[1]));
+                    mReceived.add(new StrokeOp(type, stroke, color, strokeWidth, points, null));
+                    break;
+                }
+                case StrokeProtocol.OP_MOVE: {
+                    long stroke = sender | cursor.readVarInt();
+                    int count = cursor.readVarInt();
+                    int[] last = mReceivedPoints.get(stroke);
+                    if (last == null || count < 0 || count > cursor.remaining() / 2) {
+                        throw new IOException("Bad move of stroke " + stroke);
+                    }
+                    PointBuffer points = new PointBuffer(count);
+                    for (int i = 0; i < count; i++) {
+                        last[0] += cursor.readZigZag();
+                        last[1] += cursor.readZigZag();
+                        points.add(SceneFormat.dequantize(last[0]), SceneFormat.dequantize(last[1]));
+                    }
+                    mReceived.add(new StrokeOp(type, stroke, 0, 0, points, null));
+                    break;
+                }
+                case StrokeProtocol.OP_END: {
+                    long stroke = sender | cursor.readVarInt();
+                    mReceivedPoints.remove(stroke);
+                    mReceived.add(new StrokeOp(type, stroke, 0, 0, null, null));
+                    break;
+                }
+                case StrokeProtocol.OP_SHAPE: {
+                    // декодируем здесь, а не в потоке отрисовки
+                    Shape shape = StoredShape.read(buffer, cursor).decode();
+                    mReceived.add(new StrokeOp(type, 0, shape.getColor(), shape.getStrokeWidth(), null, shape));
+                    break;
+                }
+                case StrokeProtocol.OP_CLEAR:
+                    mReceived.add(new StrokeOp(type, 0, 0, 0, null, null));
+                    break;
+                default:
+                    throw new IOException("Unknown op " + type);
+            }
+        }
+    }
+
+    /**
+     * Called on the session's threads.
+     */
+    public interface Listener {
+        /**
+         * New ops can be taken with {@link #poll()}.
+         */
+        void onReceived();
+
+        /**
+         * The connection is gone, not counting {@link #close()}. Called once.
+         */
+        void onDisconnected(IOException error);
+    }
+}
@@ -0,0 +1,204 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Box;
+import com.github.rkhusainov.simpledraw.model.Curve;
+import com.github.rkhusainov.simpledraw.model.Line;
+import com.github.rkhusainov.simpledraw.model.PointBuffer;
+import com.github.rkhusainov.simpledraw.model.Polygon;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streams shapes into an SVG document, one element per shape, bottom first. Geometry is
+ * written as is, curves with the same quadratic segments the screen uses.
+ */
+public class SvgWriter {
+    // сотые доли пикселя, точнее всё равно не видно
+    private static final int DECIMALS = 100;
+
+    private final Writer mOut;
+    private final StringBuilder mElement = new StringBuilder(256);
+
+    /**
+     * Writes the document header. {@code area} becomes the view box, in world coordinates.
+     */
+    public SvgWriter(Writer out, Bounds area) throws IOException {
+        mOut = out;
+        mElement.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<svg xmlns=\"http://www.w3.org/2000/svg\" viewBox=\"");
+        appendNumber(area.left).append(' ');
+        appendNumber(area.top).append(' ');
+        appendNumber(area.width()).append(' ');
+        appendNumber(area.height()).append("\" width=\"");
+        appendNumber(area.width()).append("\" height=\"");
+        appendNumber(area.height()).append("\">\n");
+        flushElement();
+    }
+
+    public void write(Shape shape) throws IOException {
+        if (shape instanceof StoredShape) {
+            shape = ((StoredShape) shape).decode();
+        }
+        if (shape instanceof Curve) {
+            writeCurve((Curve) shape);
+        } else if (shape instanceof Line) {
+            float[] coords = ((Line) shape).getCoords();
+            mElement.append("<line x1=\"");
+            appendNumber(coords[0]).append("\" y1=\"");
+            appendNumber(coords[1]).append("\" x2=\"");
+            appendNumber(coords[2]).append("\" y2=\"");
+            appendNumber(coords[3]).append('"');
+            appendStroke(shape, "butt");
+            mElement.append("/>\n");
+        } else if (shape instanceof Box) {
+            Box box = (Box) shape;
+            mElement.append("<rect x=\"");
+            appendNumber(box.getLeft()).append("\" y=\"");
+            appendNumber(box.getTop()).append("\" width=\"");
+            appendNumber(box.getRight() - box.getLeft()).append("\" height=\"");
+            appendNumber(box.getBottom() - box.getTop()).append('"');
+            appendFill(shape);
+            mElement.append("/>\n");
+        } else if (shape instanceof Polygon) {
+            writePolygon((Polygon) shape);
+        } else {
+            throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+        flushElement();
+    }
+
+    /**
+     * Closes the document. Does not close the underlying writer.
+     */
+    public void finish() throws IOException {
+        mOut.write("</svg>\n");
+        mOut.flush();
+    }
+
+    private void writeCurve(Curve curve) {
+        PointBuffer points = curve.getPoints();
+        mElement.append("<path d=\"M");
+        appendPoint(points, 0);
+        // как на экране: квадратичные сегменты через середины соседних точек
+        int smoothCount = curve.getSmoothPointCount();
+        for (int i = 1; i < smoothCount; i++) {
+            float lastX = points.getX(i - 1);
+            float lastY = points.getY(i - 1);
+            mElement.append(" Q");
+            appendNumber(lastX).append(' ');
+            appendNumber(lastY).append(' ');
+            appendNumber((lastX + points.getX(i)) / 2).append(' ');
+            appendNumber((lastY + points.getY(i)) / 2);
+        }
+        if (curve.isSealed()) {
+            mElement.append(" L");
+            appendPoint(points, smoothCount - 1);
+            for (int i = smoothCount; i < points.size(); i++) {
+                mElement.append(" L");
+                appendPoint(points, i);
+            }
+        }
+        mElement.append("\" fill=\"none\"");
+        appendStroke(curve, "butt");
+        mElement.append("/>\n");
+    }
+
+    private void writePolygon(Polygon polygon) {
+        PointBuffer points = polygon.getPoints();
+        switch (points.size()) {
+            case 0:
+                return;
+            case 1:
+                mElement.append("<circle cx=\"");
+                appendNumber(points.getX(0)).append("\" cy=\"");
+                appendNumber(points.getY(0)).append("\" r=\"");
+                appendNumber(polygon.getStrokeWidth() / 2).append('"');
+                appendFill(polygon);
+                mElement.append("/>\n");
+                return;
+            case 2:
+                mElement.append("<line x1=\"");
+                appendNumber(points.getX(0)).append("\" y1=\"");
+                appendNumber(points.getY(0)).append("\" x2=\"");
+                appendNumber(points.getX(1)).append("\" y2=\"");
+                appendNumber(points.getY(1)).append('"');
+                appendStroke(polygon, "round");
+                mElement.append("/>\n");
+                return;
+            default:
+                break;
+        }
+        mElement.append("<polygon points=\"");
+        for (int i = 0; i < points.size(); i++) {
+            if (i > 0) {
+                mElement.append(' ');
+            }
+            appendPoint(points, i);
+        }
+        mElement.append('"');
+        appendFill(polygon);
+        mElement.append("/>\n");
+    }
+
+    private void appendStroke(Shape shape, String cap) {
+        mElement.append(" stroke=\"");
+        appendColor(shape.getColor());
+        mElement.append("\" stroke-width=\"");
+        appendNumber(shape.getStrokeWidth()).append("\" stroke-linecap=\"").append(cap).append('"');
+        appendOpacity("stroke-opacity", shape.getColor());
+    }
+
+    private void appendFill(Shape shape) {
+        mElement.append(" fill=\"");
+        appendColor(shape.getColor());
+        mElement.append('"');
+        appendOpacity("fill-opacity", shape.getColor());
+    }
+
+    private void appendColor(int color) {
+        mElement.append('#');
+        for (int shift = 20; shift >= 0; shift -= 4) {
+            mElement.append(Character.forDigit((color >> shift) & 0xF, 16));
+        }
+    }
+
+    private void appendOpacity(String attribute, int color) {
+        int alpha = color >>> 24;
+        if (alpha != 0xFF) {
+            mElement.append(' ').append(attribute).append("=\"");
+            appendNumber(alpha / 255f).append('"');
+        }
+    }
+
+    private void appendPoint(PointBuffer points, int index) {
+        appendNumber(points.getX(index)).append(',');
+        appendNumber(points.getY(index));
+    }
+
+    // без Locale и экспоненты, которые дал бы String.valueOf
+    private StringBuilder appendNumber(float value) {
+        long scaled = Math.round((double) value * DECIMALS);
+        if (scaled < 0) {
+            mElement.append('-');
+            scaled = -scaled;
+        }
+        mElement.append(scaled / DECIMALS);
+        int fraction = (int) (scaled % DECIMALS);
+        if (fraction != 0) {
+            mElement.append('.');
+            if (fraction < 10) {
+                mElement.append('0');
+            }
+            mElement.append(fraction % 10 == 0 ? fraction / 10 : fraction);
+        }
+        return mElement;
+    }
+
+    private void flushElement() throws IOException {
+        mOut.append(mElement);
+        mElement.setLength(0);
+    }
+}
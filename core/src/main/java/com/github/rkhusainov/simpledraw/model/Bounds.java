@@ -0,0 +1,121 @@
+package com.github.rkhusainov.simpledraw.model;
+
+/**
+ * Axis-aligned rectangle in world coordinates. Mirrors the semantics of
+ * {@code android.graphics.RectF}, so the Android layer can convert field by field.
+ */
+public class Bounds {
+    public float left;
+    public float top;
+    public float right;
+    public float bottom;
+
+    public Bounds() {
+    }
+
+    public Bounds(float left, float top, float right, float bottom) {
+        set(left, top, right, bottom);
+    }
+
+    public void set(float left, float top, float right, float bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public void set(Bounds other) {
+        set(other.left, other.top, other.right, other.bottom);
+    }
+
+    public void setEmpty() {
+        left = top = right = bottom = 0;
+    }
+
+    public boolean isEmpty() {
+        return left >= right || top >= bottom;
+    }
+
+    public float width() {
+        return right - left;
+    }
+
+    public float height() {
+        return bottom - top;
+    }
+
+    public boolean contains(float x, float y) {
+        return left < right && top < bottom && x >= left && x < right && y >= top && y < bottom;
+    }
+
+    /**
+     * True if both rectangles are non-empty and overlap.
+     */
+    public boolean intersects(float left, float top, float right, float bottom) {
+        return this.left < right && left < this.right && this.top < bottom && top < this.bottom;
+    }
+
+    public boolean intersects(Bounds other) {
+        return intersects(other.left, other.top, other.right, other.bottom);
+    }
+
+    /**
+     * Grows to include the rectangle. Empty rectangles are ignored on either side.
+     */
+    public void union(float left, float top, float right, float bottom) {
+        if (left >= right || top >= bottom) {
+            return;
+        }
+        if (isEmpty()) {
+            set(left, top, right, bottom);
+            return;
+        }
+        this.left = Math.min(this.left, left);
+        this.top = Math.min(this.top, top);
+        this.right = Math.max(this.right, right);
+        this.bottom = Math.max(this.bottom, bottom);
+    }
+
+    public void union(Bounds other) {
+        union(other.left, other.top, other.right, other.bottom);
+    }
+
+    public void offset(float dx, float dy) {
+        left += dx;
+        top += dy;
+        right += dx;
+        bottom += dy;
+    }
+
+    public void inset(float dx, float dy) {
+        left += dx;
+        top += dy;
+        right -= dx;
+        bottom -= dy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Bounds)) {
+            return false;
+        }
+        Bounds other = (Bounds) o;
+        return left == other.left && top == other.top && right == other.right && bottom == other.bottom;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Float.floatToIntBits(left);
+        result = 31 * result + Float.floatToIntBits(top);
+        result = 31 * result + Float.floatToIntBits(right);
+        return 31 * result + Float.floatToIntBits(bottom);
+    }
+
+    @Override
+    public String toString() {
+        return "Bounds(" + left + ", " + top + ", " + right + ", " + bottom + ")";
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.rkhusainov.simpledraw.model;
+
+public class Box implements Shape {
+    // originX, originY, currentX, currentY
+    private float[] mCoords = new float[4];
+    private int mColor;
+
+    public Box(float x, float y, int color) {
+        setOrigin(x, y);
+        setCurrent(x, y);
+        mColor = color;
+    }
+
+    public float getOriginX() {
+        return mCoords[0];
+    }
+
+    public float getOriginY() {
+        return mCoords[1];
+    }
+
+    public void setOrigin(float x, float y) {
+        mCoords[0] = x;
+        mCoords[1] = y;
+    }
+
+    public float getCurrentX() {
+        return mCoords[2];
+    }
+
+    public float getCurrentY() {
+        return mCoords[3];
+    }
+
+    public void setCurrent(float x, float y) {
+        mCoords[2] = x;
+        mCoords[3] = y;
+    }
+
+    public float getLeft() {
+        return Math.min(mCoords[0], mCoords[2]);
+    }
+
+    public float getTop() {
+        return Math.min(mCoords[1], mCoords[3]);
+    }
+
+    public float getRight() {
+        return Math.max(mCoords[0], mCoords[2]);
+    }
+
+    public float getBottom() {
+        return Math.max(mCoords[1], mCoords[3]);
+    }
+
+    @Override
+    public void dragTo(float x, float y, Bounds dirty) {
+        Geometry.setBounds(dirty, mCoords[0], mCoords[1], mCoords[2], mCoords[3], x, y, 0);
+        setCurrent(x, y);
+    }
+
+    @Override
+    public void seal() {
+    }
+
+    @Override
+    public void getBounds(Bounds out) {
+        out.set(getLeft(), getTop(), getRight(), getBottom());
+    }
+
+    @Override
+    public boolean hitTest(float x, float y, float tolerance) {
+        return x >= getLeft() - tolerance && x <= getRight() + tolerance
+                && y >= getTop() - tolerance && y <= getBottom() + tolerance;
+    }
+
+    @Override
+    public float getStrokeWidth() {
+        return 0;
+    }
+
+    @Override
+    public int getColor() {
+        return mColor;
+    }
+
+    public void setColor(int color) {
+        mColor = color;
+    }
+}
@@ -0,0 +1,207 @@
+package com.github.rkhusainov.simpledraw.model;
+
+/**
+ * Freehand stroke. Accepted points are joined by quadratic segments through the midpoints
+ * between them; once sealed, straight segments lead to the last accepted point and to the
+ * last dropped sample, if any.
+ */
+public class Curve implements Shape {
+    public static final float DEFAULT_STROKE_WIDTH = 10f;
+
+    private PointBuffer mPoints = new PointBuffer();
+    // точки, соединённые квадратичными сегментами; после них только прямой хвост
+    private int mSmoothPointCount;
+    private Object mRenderCache;
+    private CurveLod mLod;
+    private int color;
+    private float mStrokeWidth = DEFAULT_STROKE_WIDTH;
+    private boolean mSealed;
+
+    private float mMinDistance;
+    // последняя принятая точка
+    private float mLastX;
+    private float mLastY;
+    // конец пути: середина между двумя последними принятыми точками
+    private float mEndX;
+    private float mEndY;
+    // последняя отброшенная точка, чтобы кривая заканчивалась там же, где палец
+    private boolean mHasTail;
+    private float mTailX;
+    private float mTailY;
+
+    private float mLeft;
+    private float mTop;
+    private float mRight;
+    private float mBottom;
+
+    public Curve(float x, float y, int color) {
+        this(x, y, color, 0f);
+    }
+
+    public Curve(float x, float y, int color, float minDistance) {
+        mPoints.add(x, y);
+        mSmoothPointCount = 1;
+        mLastX = x;
+        mLastY = y;
+        mEndX = x;
+        mEndY = y;
+        mLeft = mRight = x;
+        mTop = mBottom = y;
+        mMinDistance = minDistance;
+        this.color = color;
+    }
+
+    /**
+     * Builds a sealed curve through the given vertices, e.g. loaded or simplified ones.
+     */
+    public static Curve fromPoints(PointBuffer points, int color, float strokeWidth) {
+        Curve curve = new Curve(points.getX(0), points.getY(0), color);
+        curve.setStrokeWidth(strokeWidth);
+        for (int i = 1; i < points.size(); i++) {
+            curve.addPoint(points.getX(i), points.getY(i));
+        }
+        curve.seal();
+        return curve;
+    }
+
+    /**
+     * Appends a touch sample. Samples closer than the minimum distance to the previous
+     * accepted point are dropped; accepted ones are joined with a quadratic segment through
+     * the midpoint, so the outline stays smooth with one segment per sample.
+     *
+     * @return true if the sample became a new vertex of the path
+     */
+    public boolean addPoint(float x, float y) {
+        if (mSealed) {
+            throw new IllegalStateException("Curve is already sealed");
+        }
+
+        float dx = x - mLastX;
+        float dy = y - mLastY;
+        if (dx * dx + dy * dy < mMinDistance * mMinDistance || (dx == 0 && dy == 0)) {
+            mHasTail = true;
+            mTailX = x;
+            mTailY = y;
+            return false;
+        }
+
+        mEndX = (mLastX + x) / 2;
+        mEndY = (mLastY + y) / 2;
+        mLastX = x;
+        mLastY = y;
+        mHasTail = false;
+        appendVertex(x, y);
+        mSmoothPointCount++;
+        return true;
+    }
+
+    private void appendVertex(float x, float y) {
+        mPoints.add(x, y);
+        mLeft = Math.min(mLeft, x);
+        mTop = Math.min(mTop, y);
+        mRight = Math.max(mRight, x);
+        mBottom = Math.max(mBottom, y);
+    }
+
+    @Override
+    public void dragTo(float x, float y, Bounds dirty) {
+        float endX = mEndX;
+        float endY = mEndY;
+        float controlX = mLastX;
+        float controlY = mLastY;
+        if (addPoint(x, y)) {
+            // квадратичный сегмент не выходит за треугольник из своих опорных точек
+            Geometry.setBounds(dirty, endX, endY, controlX, controlY, mEndX, mEndY, mStrokeWidth / 2);
+        } else {
+            dirty.setEmpty();
+        }
+    }
+
+    @Override
+    public void seal() {
+        if (mSealed) {
+            return;
+        }
+        if (mHasTail) {
+            appendVertex(mTailX, mTailY);
+            mHasTail = false;
+        }
+        mSealed = true;
+    }
+
+    public boolean isSealed() {
+        return mSealed;
+    }
+
+    public void setMinDistance(float minDistance) {
+        mMinDistance = minDistance;
+    }
+
+    public int getPointCount() {
+        return mPoints.size();
+    }
+
+    public PointBuffer getPoints() {
+        return mPoints;
+    }
+
+    /**
+     * Number of leading points joined by quadratic segments. The points after them, at most
+     * one, are joined by straight segments and only exist once the curve is sealed.
+     */
+    public int getSmoothPointCount() {
+        return mSmoothPointCount;
+    }
+
+    /**
+     * Data the platform renderer derives from the curve, e.g. its path. The core never
+     * reads it; points are only ever appended, so a cache can be extended incrementally.
+     */
+    public Object getRenderCache() {
+        return mRenderCache;
+    }
+
+    public void setRenderCache(Object renderCache) {
+        mRenderCache = renderCache;
+    }
+
+    /**
+     * Simplified copies for drawing the sealed curve small, created on first use. Unlike the
+     * render cache it may be used from several threads, and it goes away with the curve.
+     */
+    public synchronized CurveLod getLod() {
+        if (mLod == null) {
+            mLod = new CurveLod();
+        }
+        return mLod;
+    }
+
+    @Override
+    public void getBounds(Bounds out) {
+        float halfWidth = mStrokeWidth / 2;
+        out.set(mLeft - halfWidth, mTop - halfWidth, mRight + halfWidth, mBottom + halfWidth);
+    }
+
+    @Override
+    public boolean hitTest(float x, float y, float tolerance) {
+        return Geometry.isNearPolyline(mPoints, mPoints.size(), x, y, mStrokeWidth / 2 + tolerance);
+    }
+
+    @Override
+    public int getColor() {
+        return color;
+    }
+
+    public void setColor(int color) {
+        this.color = color;
+    }
+
+    @Override
+    public float getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    public void setStrokeWidth(float strokeWidth) {
+        mStrokeWidth = strokeWidth;
+    }
+}
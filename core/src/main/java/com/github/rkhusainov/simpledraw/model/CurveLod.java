@@ -0,0 +1,114 @@
+package com.github.rkhusainov.simpledraw.model;
+
+import java.util.Arrays;
+
+/**
+ * Coarser copies of a sealed curve for drawing it small. Level {@code k} keeps only the points
+ * needed to stay within {@code BASE_TOLERANCE * 2^k} world units of the curve. Levels are
+ * simplified from the full curve on first use and can be dropped with {@link #clear()} to
+ * save memory; the object may be shared between threads. Owned by its {@link Curve}, see
+ * {@link Curve#getLod()}; it does not reference the curve, so a cache of pyramids does not
+ * keep removed curves alive.
+ */
+public class CurveLod {
+    public static final float BASE_TOLERANCE = 0.5f;
+    public static final int LEVEL_COUNT = 6;
+    // у коротких кривых упрощать почти нечего
+    public static final int MIN_POINTS = 32;
+
+    private static final int BYTES_PER_POINT = 8;
+
+    private final PointBuffer[] mLevels = new PointBuffer[LEVEL_COUNT];
+    // то, что платформа построила из уровня; уходит вместе с ним
+    private final Object[] mRenderCaches = new Object[LEVEL_COUNT];
+    private int mByteCount;
+
+    /**
+     * Coarsest level whose error stays within {@code maxError} world units.
+     *
+     * @return the level or -1 if even level 0 is too coarse
+     */
+    public static int levelFor(float maxError) {
+        if (!(maxError >= BASE_TOLERANCE)) {
+            return -1;
+        }
+        int level = 0;
+        float tolerance = BASE_TOLERANCE * 2;
+        while (level + 1 < LEVEL_COUNT && tolerance <= maxError) {
+            level++;
+            tolerance *= 2;
+        }
+        return level;
+    }
+
+    public static float toleranceOf(int level) {
+        return BASE_TOLERANCE * (1 << level);
+    }
+
+    /**
+     * Points of the level of {@code curve}, the curve this pyramid belongs to, simplified on
+     * the first call. Do not modify them.
+     */
+    public synchronized PointBuffer getLevel(Curve curve, int level) {
+        PointBuffer points = mLevels[level];
+        if (points == null) {
+            if (!curve.isSealed()) {
+                throw new IllegalArgumentException("Curve is still being drawn");
+            }
+            // уровень грубее уже готового не может оказаться длиннее его
+            int capacity = curve.getPointCount();
+            for (int i = level - 1; i >= 0; i--) {
+                if (mLevels[i] != null) {
+                    capacity = mLevels[i].size();
+                    break;
+                }
+            }
+            PointBuffer simplified = new PointBuffer(capacity);
+            Simplifier.simplify(curve.getPoints(), toleranceOf(level), simplified);
+            points = new PointBuffer(simplified.size());
+            for (int i = 0; i < simplified.size(); i++) {
+                points.add(simplified.getX(i), simplified.getY(i));
+            }
+            mLevels[level] = points;
+            mByteCount += points.size() * BYTES_PER_POINT;
+        }
+        return points;
+    }
+
+    public synchronized boolean hasLevel(int level) {
+        return mLevels[level] != null;
+    }
+
+    /**
+     * Data the platform renderer derives from a level, e.g. its path. Dropped by
+     * {@link #clear()} together with the level.
+     */
+    public synchronized Object getRenderCache(int level) {
+        return mRenderCaches[level];
+    }
+
+    /**
+     * Ignored if the level is not built, e.g. because another thread has just cleared it.
+     */
+    public synchronized void setRenderCache(int level, Object renderCache) {
+        if (mLevels[level] != null) {
+            mRenderCaches[level] = renderCache;
+        }
+    }
+
+    /**
+     * Drops the levels built so far; they are simplified again when needed.
+     */
+    public synchronized void clear() {
+        Arrays.fill(mLevels, null);
+        Arrays.fill(mRenderCaches, null);
+        mByteCount = 0;
+    }
+
+    /**
+     * Memory taken by the levels built so far.
+     */
+    public synchronized int getByteCount() {
+        return mByteCount;
+    }
+}
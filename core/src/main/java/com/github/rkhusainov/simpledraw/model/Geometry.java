@@ -0,0 +1,75 @@
+package com.github.rkhusainov.simpledraw.model;
+
+public final class Geometry {
+
+    private Geometry() {
+    }
+
+    public static float distanceSq(float x1, float y1, float x2, float y2) {
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Sets {@code out} to the bounds of three points grown by {@code outset} on every side.
+     */
+    public static void setBounds(Bounds out, float x0, float y0, float x1, float y1, float x2, float y2,
+                                 float outset) {
+        out.set(Math.min(x0, Math.min(x1, x2)) - outset,
+                Math.min(y0, Math.min(y1, y2)) - outset,
+                Math.max(x0, Math.max(x1, x2)) + outset,
+                Math.max(y0, Math.max(y1, y2)) + outset);
+    }
+
+    /**
+     * Squared distance from point (px, py) to the segment (ax, ay) - (bx, by).
+     */
+    public static float distanceToSegmentSq(float px, float py, float ax, float ay, float bx, float by) {
+        float dx = bx - ax;
+        float dy = by - ay;
+        float lengthSq = dx * dx + dy * dy;
+        if (lengthSq == 0) {
+            return distanceSq(px, py, ax, ay);
+        }
+
+        float t = ((px - ax) * dx + (py - ay) * dy) / lengthSq;
+        t = Math.max(0, Math.min(1, t));
+        return distanceSq(px, py, ax + t * dx, ay + t * dy);
+    }
+
+    /**
+     * Distance check against a polyline made of the first {@code count} points of {@code points}.
+     */
+    public static boolean isNearPolyline(PointBuffer points, int count, float x, float y, float distance) {
+        float distanceSq = distance * distance;
+        if (count == 1) {
+            return distanceSq(x, y, points.getX(0), points.getY(0)) <= distanceSq;
+        }
+        for (int i = 1; i < count; i++) {
+            if (distanceToSegmentSq(x, y, points.getX(i - 1), points.getY(i - 1),
+                    points.getX(i), points.getY(i)) <= distanceSq) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Even-odd point in polygon test.
+     */
+    public static boolean isInsidePolygon(PointBuffer points, float x, float y) {
+        boolean inside = false;
+        int count = points.size();
+        for (int i = 0, j = count - 1; i < count; j = i++) {
+            float xi = points.getX(i);
+            float yi = points.getY(i);
+            float xj = points.getX(j);
+            float yj = points.getY(j);
+            if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+}
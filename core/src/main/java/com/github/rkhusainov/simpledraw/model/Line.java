@@ -0,0 +1,90 @@
+package com.github.rkhusainov.simpledraw.model;
+
+public class Line implements Shape {
+    public static final float DEFAULT_STROKE_WIDTH = 10f;
+
+    // startX, startY, endX, endY
+    private float[] mCoords = new float[4];
+    private int mColor;
+    private float mStrokeWidth = DEFAULT_STROKE_WIDTH;
+
+    public Line(float x, float y, int color) {
+        setStart(x, y);
+        setEnd(x, y);
+        mColor = color;
+    }
+
+    public float getStartX() {
+        return mCoords[0];
+    }
+
+    public float getStartY() {
+        return mCoords[1];
+    }
+
+    public void setStart(float x, float y) {
+        mCoords[0] = x;
+        mCoords[1] = y;
+    }
+
+    public float getEndX() {
+        return mCoords[2];
+    }
+
+    public float getEndY() {
+        return mCoords[3];
+    }
+
+    public void setEnd(float x, float y) {
+        mCoords[2] = x;
+        mCoords[3] = y;
+    }
+
+    public float[] getCoords() {
+        return mCoords;
+    }
+
+    @Override
+    public void dragTo(float x, float y, Bounds dirty) {
+        Geometry.setBounds(dirty, mCoords[0], mCoords[1], mCoords[2], mCoords[3], x, y, mStrokeWidth / 2);
+        setEnd(x, y);
+    }
+
+    @Override
+    public void seal() {
+    }
+
+    @Override
+    public void getBounds(Bounds out) {
+        float halfWidth = mStrokeWidth / 2;
+        out.set(Math.min(mCoords[0], mCoords[2]) - halfWidth,
+                Math.min(mCoords[1], mCoords[3]) - halfWidth,
+                Math.max(mCoords[0], mCoords[2]) + halfWidth,
+                Math.max(mCoords[1], mCoords[3]) + halfWidth);
+    }
+
+    @Override
+    public boolean hitTest(float x, float y, float tolerance) {
+        float distance = mStrokeWidth / 2 + tolerance;
+        return Geometry.distanceToSegmentSq(x, y, mCoords[0], mCoords[1], mCoords[2], mCoords[3])
+                <= distance * distance;
+    }
+
+    @Override
+    public int getColor() {
+        return mColor;
+    }
+
+    public void setColor(int color) {
+        mColor = color;
+    }
+
+    @Override
+    public float getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    public void setStrokeWidth(float strokeWidth) {
+        mStrokeWidth = strokeWidth;
+    }
+}
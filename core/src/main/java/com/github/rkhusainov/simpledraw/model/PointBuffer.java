@@ -0,0 +1,89 @@
+package com.github.rkhusainov.simpledraw.model;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of points packed as x0, y0, x1, y1, ... in a single float array.
+ * Capacity doubles on overflow, so appends are amortized O(1) and allocation free
+ * once the buffer has grown to its working size.
+ */
+public class PointBuffer {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private float[] mCoords;
+    private int mSize;
+
+    public PointBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PointBuffer(int capacity) {
+        mCoords = new float[Math.max(1, capacity) * 2];
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    public float getX(int index) {
+        return mCoords[index * 2];
+    }
+
+    public float getY(int index) {
+        return mCoords[index * 2 + 1];
+    }
+
+    public void add(float x, float y) {
+        ensureCapacity(mSize + 1);
+        mCoords[mSize * 2] = x;
+        mCoords[mSize * 2 + 1] = y;
+        mSize++;
+    }
+
+    public void set(int index, float x, float y) {
+        if (index >= mSize) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + mSize);
+        }
+        mCoords[index * 2] = x;
+        mCoords[index * 2 + 1] = y;
+    }
+
+    /**
+     * Grows the buffer with (0, 0) points until it holds at least {@code size} points.
+     */
+    public void resize(int size) {
+        ensureCapacity(size);
+        if (size > mSize) {
+            Arrays.fill(mCoords, mSize * 2, size * 2, 0f);
+        }
+        mSize = size;
+    }
+
+    public void offset(float dx, float dy) {
+        for (int i = 0; i < mSize * 2; i += 2) {
+            mCoords[i] += dx;
+            mCoords[i + 1] += dy;
+        }
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+
+    public void ensureCapacity(int points) {
+        if (points * 2 > mCoords.length) {
+            mCoords = Arrays.copyOf(mCoords, Math.max(points * 2, mCoords.length * 2));
+        }
+    }
+
+    /**
+     * Backing array, valid up to {@code size() * 2}. Invalidated by the next append.
+     */
+    public float[] getCoords() {
+        return mCoords;
+    }
+}
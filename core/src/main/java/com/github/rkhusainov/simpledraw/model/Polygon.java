@@ -0,0 +1,210 @@
+package com.github.rkhusainov.simpledraw.model;
+
+/**
+ * Filled polygon with one vertex per finger. With one or two vertices it is drawn as a dot
+ * or a segment with round caps.
+ * <p>
+ * Vertices are added in the order fingers go down and are never removed. Pointer IDs are
+ * not dense and get reused, so a small table maps each finger that is still down to its
+ * vertex; a finger that is lifted leaves its vertex where it was.
+ */
+public class Polygon implements Shape {
+    public static final float DEFAULT_STROKE_WIDTH = 8f;
+    /**
+     * Fingers tracked at once, further ones are ignored.
+     */
+    public static final int MAX_POINTERS = 16;
+
+    private int mColor;
+    private float mLineWidth = DEFAULT_STROKE_WIDTH;
+    private PointBuffer mPoints = new PointBuffer(4);
+    private Bounds mBounds = new Bounds();
+    private Object mRenderCache;
+    private int mVersion;
+
+    // id пальца -> индекс вершины, только для пальцев, которые ещё на экране
+    private int[] mPointerIds;
+    private int[] mPointerVertices;
+    private int mPointerCount;
+
+    public Polygon(int color) {
+        mColor = color;
+    }
+
+    /**
+     * Appends a vertex not bound to any finger, e.g. when reading a scene.
+     */
+    public void addPoint(float x, float y) {
+        mPoints.add(x, y);
+        mVersion++;
+    }
+
+    /**
+     * Adds a vertex for a finger that went down. If the finger is already tracked its vertex
+     * is moved instead.
+     *
+     * @param dirty receives the area covered by the figure before or after the change
+     * @return false if there is no free slot for the finger
+     */
+    public boolean pointerDown(int pointerId, float x, float y, Bounds dirty) {
+        if (indexOfPointer(pointerId) >= 0) {
+            return pointerMove(pointerId, x, y, dirty);
+        }
+        if (mPointerIds == null) {
+            mPointerIds = new int[MAX_POINTERS];
+            mPointerVertices = new int[MAX_POINTERS];
+        }
+        if (mPointerCount == MAX_POINTERS) {
+            return false;
+        }
+        getBounds(dirty);
+        mPointerIds[mPointerCount] = pointerId;
+        mPointerVertices[mPointerCount] = mPoints.size();
+        mPointerCount++;
+        addPoint(x, y);
+        unionBounds(dirty);
+        return true;
+    }
+
+    /**
+     * Moves the vertex of a tracked finger.
+     *
+     * @param dirty receives the area covered by the figure before or after the change
+     * @return false if the finger is not tracked or the vertex did not move
+     */
+    public boolean pointerMove(int pointerId, float x, float y, Bounds dirty) {
+        int slot = indexOfPointer(pointerId);
+        if (slot < 0) {
+            return false;
+        }
+        int vertex = mPointerVertices[slot];
+        if (mPoints.getX(vertex) == x && mPoints.getY(vertex) == y) {
+            return false;
+        }
+        getBounds(dirty);
+        mPoints.set(vertex, x, y);
+        mVersion++;
+        unionBounds(dirty);
+        return true;
+    }
+
+    /**
+     * Stops tracking a lifted finger; its vertex stays. A new finger with the same ID gets
+     * a new vertex.
+     */
+    public void pointerUp(int pointerId) {
+        int slot = indexOfPointer(pointerId);
+        if (slot < 0) {
+            return;
+        }
+        mPointerCount--;
+        mPointerIds[slot] = mPointerIds[mPointerCount];
+        mPointerVertices[slot] = mPointerVertices[mPointerCount];
+    }
+
+    public int getPointerCount() {
+        return mPointerCount;
+    }
+
+    /**
+     * Incremented on every vertex change, so derived geometry can tell when to rebuild.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    public PointBuffer getPoints() {
+        return mPoints;
+    }
+
+    /**
+     * Data the platform renderer derives from the polygon, e.g. its path. The core never
+     * reads it.
+     */
+    public Object getRenderCache() {
+        return mRenderCache;
+    }
+
+    public void setRenderCache(Object renderCache) {
+        mRenderCache = renderCache;
+    }
+
+    @Override
+    public void dragTo(float x, float y, Bounds dirty) {
+        getBounds(dirty);
+        if (mPoints.isEmpty()) {
+            mPoints.add(x, y);
+        } else {
+            mPoints.set(0, x, y);
+        }
+        mVersion++;
+        unionBounds(dirty);
+    }
+
+    @Override
+    public void seal() {
+        mPointerIds = null;
+        mPointerVertices = null;
+        mPointerCount = 0;
+    }
+
+    @Override
+    public void getBounds(Bounds out) {
+        if (mPoints.isEmpty()) {
+            out.setEmpty();
+            return;
+        }
+
+        float left = mPoints.getX(0);
+        float top = mPoints.getY(0);
+        float right = left;
+        float bottom = top;
+        for (int i = 1; i < mPoints.size(); i++) {
+            left = Math.min(left, mPoints.getX(i));
+            top = Math.min(top, mPoints.getY(i));
+            right = Math.max(right, mPoints.getX(i));
+            bottom = Math.max(bottom, mPoints.getY(i));
+        }
+        float halfWidth = mLineWidth / 2;
+        out.set(left - halfWidth, top - halfWidth, right + halfWidth, bottom + halfWidth);
+    }
+
+    @Override
+    public boolean hitTest(float x, float y, float tolerance) {
+        if (mPoints.isEmpty()) {
+            return false;
+        }
+        if (mPoints.size() > 2 && Geometry.isInsidePolygon(mPoints, x, y)) {
+            return true;
+        }
+        return Geometry.isNearPolyline(mPoints, mPoints.size(), x, y, mLineWidth / 2 + tolerance);
+    }
+
+    private int indexOfPointer(int pointerId) {
+        for (int i = 0; i < mPointerCount; i++) {
+            if (mPointerIds[i] == pointerId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void unionBounds(Bounds dirty) {
+        getBounds(mBounds);
+        if (dirty.isEmpty()) {
+            dirty.set(mBounds);
+        } else {
+            dirty.union(mBounds);
+        }
+    }
+
+    @Override
+    public int getColor() {
+        return mColor;
+    }
+
+    @Override
+    public float getStrokeWidth() {
+        return mLineWidth;
+    }
+}
@@ -0,0 +1,257 @@
+package com.github.rkhusainov.simpledraw.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spatial index over axis-aligned bounds. Each item lives in the smallest node that fully
+ * contains it; the root grows on demand, so the indexed area is unbounded.
+ * Query results come back sorted by the order given on insert.
+ */
+public class QuadTree<T> {
+    private static final int MAX_ITEMS = 8;
+    private static final float MIN_NODE_SIZE = 32f;
+    private static final float INITIAL_SIZE = 4096f;
+
+    private static final Comparator<Entry<?>> ORDER_COMPARATOR = new Comparator<Entry<?>>() {
+        @Override
+        public int compare(Entry<?> a, Entry<?> b) {
+            return a.mOrder < b.mOrder ? -1 : (a.mOrder == b.mOrder ? 0 : 1);
+        }
+    };
+
+    private Node<T> mRoot = new Node<>(0, 0, INITIAL_SIZE, INITIAL_SIZE);
+    private Map<T, Entry<T>> mEntries = new IdentityHashMap<>();
+    private List<Entry<T>> mScratch = new ArrayList<>();
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    public boolean contains(T item) {
+        return mEntries.containsKey(item);
+    }
+
+    public void insert(T item, long order, float left, float top, float right, float bottom) {
+        if (mEntries.containsKey(item)) {
+            throw new IllegalArgumentException("Item is already indexed");
+        }
+        Entry<T> entry = new Entry<>(item, order);
+        entry.set(left, top, right, bottom);
+        mEntries.put(item, entry);
+        insert(entry);
+    }
+
+    /**
+     * Moves an already indexed item to new bounds.
+     */
+    public void update(T item, float left, float top, float right, float bottom) {
+        Entry<T> entry = entryOf(item);
+        entry.mNode.mEntries.remove(entry);
+        entry.set(left, top, right, bottom);
+        insert(entry);
+    }
+
+    public long getOrder(T item) {
+        return entryOf(item).mOrder;
+    }
+
+    /**
+     * Changes the position of an item in query results; its bounds stay.
+     */
+    public void setOrder(T item, long order) {
+        entryOf(item).mOrder = order;
+    }
+
+    public boolean remove(T item) {
+        Entry<T> entry = mEntries.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        entry.mNode.mEntries.remove(entry);
+        entry.mNode = null;
+        return true;
+    }
+
+    public void clear() {
+        mEntries.clear();
+        mRoot = new Node<>(0, 0, INITIAL_SIZE, INITIAL_SIZE);
+    }
+
+    /**
+     * Appends items whose bounds intersect the area to {@code out}, ordered by insert order.
+     */
+    public void query(float left, float top, float right, float bottom, List<T> out) {
+        mScratch.clear();
+        mRoot.query(left, top, right, bottom, mScratch);
+        Collections.sort(mScratch, ORDER_COMPARATOR);
+        for (int i = 0; i < mScratch.size(); i++) {
+            out.add(mScratch.get(i).mItem);
+        }
+        mScratch.clear();
+    }
+
+    private Entry<T> entryOf(T item) {
+        Entry<T> entry = mEntries.get(item);
+        if (entry == null) {
+            throw new IllegalArgumentException("Item is not indexed");
+        }
+        return entry;
+    }
+
+    private void insert(Entry<T> entry) {
+        while (!mRoot.contains(entry)) {
+            growRoot(entry);
+        }
+
+        Node<T> node = mRoot;
+        while (true) {
+            if (node.mChildren == null) {
+                node.add(entry);
+                if (node.mEntries.size() > MAX_ITEMS && node.width() > MIN_NODE_SIZE) {
+                    node.split();
+                }
+                return;
+            }
+            Node<T> child = node.childContaining(entry);
+            if (child == null) {
+                node.add(entry);
+                return;
+            }
+            node = child;
+        }
+    }
+
+    // удваиваем корень в сторону элемента, старый корень становится одним из квадрантов
+    private void growRoot(Entry<T> entry) {
+        float size = mRoot.width();
+        boolean growLeft = entry.mLeft < mRoot.mLeft;
+        boolean growUp = entry.mTop < mRoot.mTop;
+        float left = growLeft ? mRoot.mLeft - size : mRoot.mLeft;
+        float top = growUp ? mRoot.mTop - size : mRoot.mTop;
+
+        Node<T> root = new Node<>(left, top, left + size * 2, top + size * 2);
+        root.createChildren();
+        root.mChildren[(growLeft ? 1 : 0) + (growUp ? 2 : 0)] = mRoot;
+        mRoot = root;
+    }
+
+    static class Entry<T> {
+        final T mItem;
+        long mOrder;
+        float mLeft;
+        float mTop;
+        float mRight;
+        float mBottom;
+        Node<T> mNode;
+
+        Entry(T item, long order) {
+            mItem = item;
+            mOrder = order;
+        }
+
+        void set(float left, float top, float right, float bottom) {
+            mLeft = left;
+            mTop = top;
+            mRight = right;
+            mBottom = bottom;
+        }
+
+        boolean intersects(float left, float top, float right, float bottom) {
+            return mLeft <= right && mRight >= left && mTop <= bottom && mBottom >= top;
+        }
+    }
+
+    static class Node<T> {
+        final float mLeft;
+        final float mTop;
+        final float mRight;
+        final float mBottom;
+        // 0 - левый верхний, 1 - правый верхний, 2 - левый нижний, 3 - правый нижний
+        Node<T>[] mChildren;
+        List<Entry<T>> mEntries = new ArrayList<>();
+
+        Node(float left, float top, float right, float bottom) {
+            mLeft = left;
+            mTop = top;
+            mRight = right;
+            mBottom = bottom;
+        }
+
+        float width() {
+            return mRight - mLeft;
+        }
+
+        boolean contains(Entry<T> entry) {
+            return entry.mLeft >= mLeft && entry.mRight <= mRight
+                    && entry.mTop >= mTop && entry.mBottom <= mBottom;
+        }
+
+        void add(Entry<T> entry) {
+            entry.mNode = this;
+            mEntries.add(entry);
+        }
+
+        void createChildren() {
+            float midX = (mLeft + mRight) / 2;
+            float midY = (mTop + mBottom) / 2;
+            Node<T>[] children = newArray(4);
+            children[0] = new Node<>(mLeft, mTop, midX, midY);
+            children[1] = new Node<>(midX, mTop, mRight, midY);
+            children[2] = new Node<>(mLeft, midY, midX, mBottom);
+            children[3] = new Node<>(midX, midY, mRight, mBottom);
+            mChildren = children;
+        }
+
+        // массив обобщённого типа напрямую не создать; в нём будут только Node<T>
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newArray(int size) {
+            return (Node<T>[]) new Node<?>[size];
+        }
+
+        Node<T> childContaining(Entry<T> entry) {
+            for (Node<T> child : mChildren) {
+                if (child.contains(entry)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        void split() {
+            createChildren();
+            List<Entry<T>> entries = mEntries;
+            mEntries = new ArrayList<>();
+            for (int i = 0; i < entries.size(); i++) {
+                Entry<T> entry = entries.get(i);
+                Node<T> child = childContaining(entry);
+                if (child != null) {
+                    child.add(entry);
+                } else {
+                    add(entry);
+                }
+            }
+        }
+
+        void query(float left, float top, float right, float bottom, List<Entry<T>> out) {
+            for (int i = 0; i < mEntries.size(); i++) {
+                Entry<T> entry = mEntries.get(i);
+                if (entry.intersects(left, top, right, bottom)) {
+                    out.add(entry);
+                }
+            }
+            if (mChildren == null) {
+                return;
+            }
+            for (Node<T> child : mChildren) {
+                if (child.mLeft <= right && child.mRight >= left && child.mTop <= bottom && child.mBottom >= top) {
+                    child.query(left, top, right, bottom, out);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.rkhusainov.simpledraw.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Committed shapes in z-order, bottom first, with a spatial index over their bounds.
+ */
+public class Scene implements Iterable<Shape> {
+    // шаг порядка между соседними фигурами, чтобы вставка в середину не трогала остальных
+    private static final long ORDER_STEP = 1 << 16;
+
+    private List<Shape> mShapes = new ArrayList<>();
+    private QuadTree<Shape> mIndex = new QuadTree<>();
+    private long mNextOrder;
+
+    private Bounds mBounds = new Bounds();
+    private List<Shape> mCandidates = new ArrayList<>();
+
+    private Listener mListener;
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    public void add(Shape shape) {
+        mShapes.add(shape);
+        shape.getBounds(mBounds);
+        mIndex.insert(shape, mNextOrder, mBounds.left, mBounds.top, mBounds.right, mBounds.bottom);
+        mNextOrder += ORDER_STEP;
+        if (mListener != null) {
+            mListener.onShapeAdded(shape);
+        }
+    }
+
+    /**
+     * Puts a shape at {@code index}, counted from the bottom, e.g. back where it was removed.
+     */
+    public void insert(int index, Shape shape) {
+        if (index == mShapes.size()) {
+            add(shape);
+            return;
+        }
+        long above = mIndex.getOrder(mShapes.get(index));
+        long below = index > 0 ? mIndex.getOrder(mShapes.get(index - 1)) : above - ORDER_STEP;
+        mShapes.add(index, shape);
+        shape.getBounds(mBounds);
+        if (above - below > 1) {
+            mIndex.insert(shape, below + (above - below) / 2,
+                    mBounds.left, mBounds.top, mBounds.right, mBounds.bottom);
+        } else {
+            // место между соседями кончилось, нумеруем всех заново
+            mIndex.insert(shape, 0, mBounds.left, mBounds.top, mBounds.right, mBounds.bottom);
+            mNextOrder = 0;
+            for (int i = 0; i < mShapes.size(); i++) {
+                mIndex.setOrder(mShapes.get(i), mNextOrder);
+                mNextOrder += ORDER_STEP;
+            }
+        }
+        if (mListener != null) {
+            mListener.onShapeInserted(shape, index);
+        }
+    }
+
+    /**
+     * Re-indexes a shape after its geometry has changed.
+     */
+    public void update(Shape shape) {
+        shape.getBounds(mBounds);
+        mIndex.update(shape, mBounds.left, mBounds.top, mBounds.right, mBounds.bottom);
+    }
+
+    /**
+     * Removes a shape. Searches from the top, where undo finds it.
+     */
+    public boolean remove(Shape shape) {
+        int index = mShapes.lastIndexOf(shape);
+        if (index < 0) {
+            return false;
+        }
+        mShapes.remove(index);
+        mIndex.remove(shape);
+        if (mListener != null) {
+            mListener.onShapeRemoved(shape, index);
+        }
+        return true;
+    }
+
+    /**
+     * @return position of the shape counted from the bottom, or -1
+     */
+    public int indexOf(Shape shape) {
+        return mShapes.lastIndexOf(shape);
+    }
+
+    public Shape get(int index) {
+        return mShapes.get(index);
+    }
+
+    public int size() {
+        return mShapes.size();
+    }
+
+    public void clear() {
+        mShapes.clear();
+        mIndex.clear();
+        if (mListener != null) {
+            mListener.onCleared();
+        }
+    }
+
+    /**
+     * Appends shapes intersecting the area to {@code out} in z-order.
+     */
+    public void query(Bounds area, List<Shape> out) {
+        mIndex.query(area.left, area.top, area.right, area.bottom, out);
+    }
+
+    /**
+     * Topmost shape within {@code tolerance} of the point. Candidates come from the index,
+     * only they get the exact test against the outline.
+     *
+     * @return the shape or null
+     */
+    public Shape hitTest(float x, float y, float tolerance) {
+        mCandidates.clear();
+        mIndex.query(x - tolerance, y - tolerance, x + tolerance, y + tolerance, mCandidates);
+        Shape hit = null;
+        for (int i = mCandidates.size() - 1; i >= 0; i--) {
+            if (mCandidates.get(i).hitTest(x, y, tolerance)) {
+                hit = mCandidates.get(i);
+                break;
+            }
+        }
+        mCandidates.clear();
+        return hit;
+    }
+
+    @Override
+    public Iterator<Shape> iterator() {
+        return mShapes.iterator();
+    }
+
+    /**
+     * Follows changes of the scene, e.g. to persist them.
+     */
+    public interface Listener {
+        void onShapeAdded(Shape shape);
+
+        /**
+         * @param index position the shape was put at, counted from the bottom
+         */
+        void onShapeInserted(Shape shape, int index);
+
+        /**
+         * @param index position the shape had, counted from the bottom
+         */
+        void onShapeRemoved(Shape shape, int index);
+
+        void onCleared();
+    }
+}
@@ -0,0 +1,32 @@
+package com.github.rkhusainov.simpledraw.model;
+
+/**
+ * Anything that can be placed in a {@link Scene}. Shapes only hold geometry; drawing them is
+ * up to the platform layer.
+ */
+public interface Shape {
+
+    int getColor();
+
+    float getStrokeWidth();
+
+    /**
+     * Writes the area covered by the shape, stroke included, into {@code out}.
+     */
+    void getBounds(Bounds out);
+
+    boolean hitTest(float x, float y, float tolerance);
+
+    /**
+     * Follows the pointer while the shape is being drawn.
+     *
+     * @param dirty receives the area, stroke included, whose pixels may have changed;
+     *              set empty if nothing visible changed
+     */
+    void dragTo(float x, float y, Bounds dirty);
+
+    /**
+     * Called once the gesture that draws the shape is over.
+     */
+    void seal();
+}
@@ -0,0 +1,78 @@
+package com.github.rkhusainov.simpledraw.model;
+
+/**
+ * Ramer–Douglas–Peucker polyline simplification. Iterative, so long strokes cannot
+ * overflow the stack.
+ */
+public final class Simplifier {
+
+    private Simplifier() {
+    }
+
+    /**
+     * Copies to {@code out} the points of {@code in} needed to stay within {@code tolerance}
+     * of the original polyline. The first and the last point are always kept.
+     *
+     * @return number of points written to {@code out}
+     */
+    public static int simplify(PointBuffer in, float tolerance, PointBuffer out) {
+        out.clear();
+        int count = in.size();
+        if (count <= 2 || tolerance <= 0) {
+            for (int i = 0; i < count; i++) {
+                out.add(in.getX(i), in.getY(i));
+            }
+            return count;
+        }
+
+        boolean[] keep = new boolean[count];
+        keep[0] = true;
+        keep[count - 1] = true;
+        float toleranceSq = tolerance * tolerance;
+
+        // стек отрезков [first, last], которые ещё надо проверить
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            float ax = in.getX(first);
+            float ay = in.getY(first);
+            float bx = in.getX(last);
+            float by = in.getY(last);
+
+            int farthest = -1;
+            float maxDistanceSq = toleranceSq;
+            for (int i = first + 1; i < last; i++) {
+                float distanceSq = Geometry.distanceToSegmentSq(in.getX(i), in.getY(i), ax, ay, bx, by);
+                if (distanceSq > maxDistanceSq) {
+                    maxDistanceSq = distanceSq;
+                    farthest = i;
+                }
+            }
+            if (farthest < 0) {
+                continue;
+            }
+
+            keep[farthest] = true;
+            if (top + 4 > stack.length) {
+                int[] grown = new int[stack.length * 2];
+                System.arraycopy(stack, 0, grown, 0, top);
+                stack = grown;
+            }
+            stack[top++] = first;
+            stack[top++] = farthest;
+            stack[top++] = farthest;
+            stack[top++] = last;
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) {
+                out.add(in.getX(i), in.getY(i));
+            }
+        }
+        return out.size();
+    }
+}
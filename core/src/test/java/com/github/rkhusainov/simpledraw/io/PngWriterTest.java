@@ -0,0 +1,55 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertEquals;
+
+public class PngWriterTest {
+
+    @Test
+    public void decodesToTheSamePixels() throws IOException {
+        // шире одного блока IDAT, чтобы данные разошлись по нескольким чанкам
+        int width = 300;
+        int height = 97;
+        int[] pixels = new int[width * height];
+        Random random = new Random(1);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = i % 7 == 0 ? random.nextInt() : 0xFFFFFFFF;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PngWriter writer = new PngWriter(out, width, height);
+        // полосами разной высоты, как их отдаёт экспорт
+        int row = 0;
+        for (int rows = 1; row < height; rows *= 2) {
+            int count = Math.min(rows, height - row);
+            writer.writeRows(pixels, row * width, width, count);
+            row += count;
+        }
+        writer.finish();
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(width, image.getWidth());
+        assertEquals(height, image.getHeight());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals("pixel " + x + ", " + y, pixels[y * width + x], image.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsMissingRows() throws IOException {
+        PngWriter writer = new PngWriter(new ByteArrayOutputStream(), 4, 4);
+        writer.writeRows(new int[16], 0, 4, 3);
+        writer.finish();
+    }
+}
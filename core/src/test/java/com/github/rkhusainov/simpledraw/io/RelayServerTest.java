@@ -0,0 +1,203 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Box;
+import com.github.rkhusainov.simpledraw.model.Curve;
+import com.github.rkhusainov.simpledraw.model.PointBuffer;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RelayServerTest {
+    private static final float TOLERANCE = 1f / SceneFormat.QUANTUM;
+    private static final int RED = 0xFFFF0000;
+    private static final long TIMEOUT_MS = 10000;
+
+    private RelayServer mServer;
+    private final List<StrokeSession> mSessions = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new RelayServer(0);
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (StrokeSession session : mSessions) {
+            session.close();
+        }
+        mServer.close();
+    }
+
+    @Test
+    public void strokeReachesOtherParticipantsOnly() throws Exception {
+        Participant author = connect(10);
+        Participant first = connect(10);
+        Participant second = connect(10);
+        awaitClients(3);
+
+        PointBuffer sent = new PointBuffer();
+        int stroke = author.mSession.beginStroke(RED, 7f, 10.3f, 20.7f);
+        sent.add(10.3f, 20.7f);
+        for (int i = 1; i < 50; i++) {
+            float x = 10.3f + i * 1.37f;
+            float y = 20.7f + (float) Math.sin(i * 0.2) * 15f;
+            author.mSession.moveStroke(stroke, x, y);
+            sent.add(x, y);
+        }
+        author.mSession.endStroke(stroke);
+        Box box = new Box(1f, 2f, RED);
+        box.setCurrent(30f, 40f);
+        author.mSession.sendShape(box);
+
+        for (Participant participant : new Participant[]{first, second}) {
+            List<Shape> shapes = participant.awaitShapes(2);
+            Curve curve = (Curve) shapes.get(0);
+            assertEquals(RED, curve.getColor());
+            assertEquals(7f, curve.getStrokeWidth(), 0f);
+            PointBuffer points = curve.getPoints();
+            assertEquals(sent.size(), points.size());
+            for (int i = 0; i < sent.size(); i++) {
+                assertEquals(sent.getX(i), points.getX(i), TOLERANCE);
+                assertEquals(sent.getY(i), points.getY(i), TOLERANCE);
+            }
+            Bounds bounds = new Bounds();
+            shapes.get(1).getBounds(bounds);
+            assertEquals(30f, bounds.right, TOLERANCE);
+            assertTrue(participant.mStrokes.getStrokes().isEmpty());
+        }
+
+        // своё не возвращается
+        Thread.sleep(100);
+        assertNull(author.mSession.poll());
+    }
+
+    @Test
+    public void movesAreCoalescedIntoFrames() throws Exception {
+        Participant author = connect(50);
+        Participant reader = connect(50);
+        awaitClients(2);
+
+        int stroke = author.mSession.beginStroke(RED, 5f, 0f, 0f);
+        for (int i = 1; i <= 200; i++) {
+            author.mSession.moveStroke(stroke, i, i % 7);
+        }
+        author.mSession.endStroke(stroke);
+
+        Curve curve = (Curve) reader.awaitShapes(1).get(0);
+        assertEquals(201, curve.getPointCount());
+        // начало уходит сразу, остальное не должно дробиться по точке на кадр
+        assertTrue("frames: " + reader.mFrames.get(), reader.mFrames.get() <= 4);
+    }
+
+    @Test
+    public void relaysUnderLoad() throws Exception {
+        final int participants = 4;
+        final int strokes = 50;
+        final int points = 200;
+        final List<Participant> all = new ArrayList<>();
+        for (int i = 0; i < participants; i++) {
+            all.add(connect(8));
+        }
+        awaitClients(participants);
+
+        List<Thread> authors = new ArrayList<>();
+        for (final Participant participant : all) {
+            Thread author = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int s = 0; s < strokes; s++) {
+                        int stroke = participant.mSession.beginStroke(RED, 3f, s, 0f);
+                        for (int i = 1; i < points; i++) {
+                            participant.mSession.moveStroke(stroke, s, i);
+                        }
+                        participant.mSession.endStroke(stroke);
+                    }
+                }
+            });
+            author.start();
+            authors.add(author);
+        }
+        for (Thread author : authors) {
+            author.join();
+        }
+
+        // всё чужое должно дойти до каждого за TIMEOUT_MS
+        for (Participant participant : all) {
+            List<Shape> shapes = participant.awaitShapes((participants - 1) * strokes);
+            for (Shape shape : shapes) {
+                assertEquals(points, ((Curve) shape).getPointCount());
+            }
+        }
+        assertEquals(participants, mServer.getClientCount());
+    }
+
+    private Participant connect(int frameMillis) throws IOException {
+        Participant participant = new Participant();
+        participant.mSession = StrokeSession.connect("localhost", mServer.getPort(), frameMillis, participant);
+        mSessions.add(participant.mSession);
+        return participant;
+    }
+
+    // сервер регистрирует участника после приветствия, в своём потоке
+    private void awaitClients(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (mServer.getClientCount() < count) {
+            assertTrue("clients: " + mServer.getClientCount(), System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static class Participant implements StrokeSession.Listener {
+        StrokeSession mSession;
+        final RemoteStrokes mStrokes = new RemoteStrokes();
+        final List<Shape> mShapes = new ArrayList<>();
+        final Semaphore mReceived = new Semaphore(0);
+        final AtomicInteger mFrames = new AtomicInteger();
+        final Bounds mDirty = new Bounds();
+
+        @Override
+        public void onReceived() {
+            mFrames.incrementAndGet();
+            mReceived.release();
+        }
+
+        @Override
+        public void onDisconnected(IOException error) {
+            mReceived.release();
+        }
+
+        List<Shape> awaitShapes(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            while (true) {
+                StrokeOp op;
+                while ((op = mSession.poll()) != null) {
+                    Shape shape = mStrokes.apply(op, mDirty);
+                    if (shape != null) {
+                        mShapes.add(shape);
+                    }
+                }
+                if (mShapes.size() >= count) {
+                    return mShapes;
+                }
+                long left = deadline - System.currentTimeMillis();
+                assertTrue("shapes: " + mShapes.size() + " of " + count, left > 0);
+                mReceived.tryAcquire(left, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Box;
+import com.github.rkhusainov.simpledraw.model.Curve;
+import com.github.rkhusainov.simpledraw.model.Line;
+import com.github.rkhusainov.simpledraw.model.Polygon;
+import com.github.rkhusainov.simpledraw.model.Scene;
+import com.github.rkhusainov.simpledraw.model.Shape;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SceneFileTest {
+    private static final float TOLERANCE = 1f / SceneFormat.QUANTUM;
+
+    private static final int RED = 0xFFFF0000;
+    private static final int GREEN = 0xFF00FF00;
+    private static final int BLUE = 0xFF0000FF;
+    private static final int MAGENTA = 0xFFFF00FF;
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("test", ".sdrw");
+        mFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void roundTripKeepsShapes() throws Exception {
+        List<Shape> shapes = createShapes();
+        SceneWriter.save(shapes, mFile);
+
+        SceneReader reader = SceneReader.open(mFile);
+        assertEquals(shapes.size(), reader.getShapeCount());
+        for (int i = 0; i < shapes.size(); i++) {
+            assertSameShape(shapes.get(i), reader.getShape(i).decode());
+        }
+    }
+
+    @Test
+    public void appendSkipsTruncatedRecord() throws Exception {
+        List<Shape> shapes = createShapes();
+        SceneWriter writer = SceneWriter.create(mFile);
+        for (Shape shape : shapes) {
+            writer.write(shape);
+        }
+        writer.close();
+
+        // обрываем последнюю запись, как при падении во время записи
+        RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+        raf.setLength(raf.length() - 3);
+        raf.close();
+
+        SceneReader reader = SceneReader.open(mFile);
+        assertEquals(shapes.size() - 1, reader.getShapeCount());
+
+        writer = SceneWriter.append(mFile, reader.getValidLength());
+        writer.write(shapes.get(0));
+        writer.close();
+
+        reader = SceneReader.open(mFile);
+        assertEquals(shapes.size(), reader.getShapeCount());
+        assertSameShape(shapes.get(0), reader.getShape(shapes.size() - 1).decode());
+    }
+
+    @Test
+    public void storedShapesAreCopiedVerbatim() throws Exception {
+        SceneWriter.save(createShapes(), mFile);
+        Scene scene = new Scene();
+        SceneReader.open(mFile).readInto(scene);
+
+        // перезапись файла, который сейчас отображён в память
+        SceneWriter.save(scene, mFile);
+        SceneReader reader = SceneReader.open(mFile);
+        assertEquals(scene.size(), reader.getShapeCount());
+        for (int i = 0; i < scene.size(); i++) {
+            assertSameShape(((StoredShape) scene.get(i)).decode(), reader.getShape(i).decode());
+        }
+    }
+
+    @Test
+    public void insertPutsShapeBackInPlace() throws Exception {
+        List<Shape> shapes = createShapes();
+        SceneWriter writer = SceneWriter.create(mFile);
+        for (Shape shape : shapes) {
+            writer.write(shape);
+        }
+        // стирание и его отмена
+        writer.writeRemove(1);
+        writer.writeInsert(1, shapes.get(1));
+        writer.writeRemove(0);
+        writer.close();
+
+        SceneReader reader = SceneReader.open(mFile);
+        assertEquals(shapes.size() - 1, reader.getShapeCount());
+        for (int i = 1; i < shapes.size(); i++) {
+            assertSameShape(shapes.get(i), reader.getShape(i - 1).decode());
+        }
+    }
+
+    private static List<Shape> createShapes() {
+        List<Shape> shapes = new ArrayList<>();
+        Curve curve = new Curve(10.3f, -20.7f, RED);
+        for (int i = 1; i <= 1000; i++) {
+            curve.addPoint(10 + i * 1.37f, (float) Math.sin(i / 20.0) * 300);
+        }
+        curve.seal();
+        shapes.add(curve);
+
+        Line line = new Line(-5000, 7, BLUE);
+        line.setEnd(12000.125f, 9);
+        shapes.add(line);
+
+        Box box = new Box(40, 40, GREEN);
+        box.setCurrent(-3, 100);
+        shapes.add(box);
+
+        Polygon figure = new Polygon(MAGENTA);
+        figure.addPoint(0, 0);
+        figure.addPoint(100, 0);
+        figure.addPoint(50, 80);
+        shapes.add(figure);
+        return shapes;
+    }
+
+    private static void assertSameShape(Shape expected, Shape actual) {
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.getColor(), actual.getColor());
+        assertEquals(expected.getStrokeWidth(), actual.getStrokeWidth(), 0);
+
+        Bounds expectedBounds = new Bounds();
+        Bounds actualBounds = new Bounds();
+        expected.getBounds(expectedBounds);
+        actual.getBounds(actualBounds);
+        assertEquals(expectedBounds.left, actualBounds.left, TOLERANCE);
+        assertEquals(expectedBounds.top, actualBounds.top, TOLERANCE);
+        assertEquals(expectedBounds.right, actualBounds.right, TOLERANCE);
+        assertEquals(expectedBounds.bottom, actualBounds.bottom, TOLERANCE);
+
+        if (expected instanceof Curve) {
+            assertTrue(((Curve) actual).isSealed());
+            assertEquals(((Curve) expected).getPointCount(), ((Curve) actual).getPointCount());
+        }
+    }
+}
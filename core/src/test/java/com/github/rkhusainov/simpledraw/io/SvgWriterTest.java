@@ -0,0 +1,66 @@
+package com.github.rkhusainov.simpledraw.io;
+
+import com.github.rkhusainov.simpledraw.model.Bounds;
+import com.github.rkhusainov.simpledraw.model.Box;
+import com.github.rkhusainov.simpledraw.model.Curve;
+import com.github.rkhusainov.simpledraw.model.Line;
+import com.github.rkhusainov.simpledraw.model.Polygon;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SvgWriterTest {
+
+    @Test
+    public void writesOneElementPerShape() throws IOException {
+        StringWriter out = new StringWriter();
+        SvgWriter writer = new SvgWriter(out, new Bounds(-10, 0, 90.5f, 50));
+
+        Line line = new Line(0, 0, 0xFFFF0000);
+        line.setEnd(10.25f, -3);
+        writer.write(line);
+
+        Box box = new Box(5, 5, 0x800000FF);
+        box.setCurrent(1, 2);
+        writer.write(box);
+
+        Polygon polygon = new Polygon(0xFF00FF00);
+        polygon.addPoint(0, 0);
+        polygon.addPoint(4, 0);
+        polygon.addPoint(2, 3);
+        writer.write(polygon);
+        writer.finish();
+
+        String svg = out.toString();
+        assertTrue(svg, svg.contains("viewBox=\"-10 0 100.5 50\""));
+        assertTrue(svg, svg.contains("<line x1=\"0\" y1=\"0\" x2=\"10.25\" y2=\"-3\" stroke=\"#ff0000\" "
+                + "stroke-width=\"10\" stroke-linecap=\"butt\"/>"));
+        assertTrue(svg, svg.contains("<rect x=\"1\" y=\"2\" width=\"4\" height=\"3\" fill=\"#0000ff\" "
+                + "fill-opacity=\"0.5\"/>"));
+        assertTrue(svg, svg.contains("<polygon points=\"0,0 4,0 2,3\" fill=\"#00ff00\"/>"));
+        assertTrue(svg, svg.endsWith("</svg>\n"));
+    }
+
+    @Test
+    public void curveFollowsScreenSegments() throws IOException {
+        Curve curve = new Curve(0, 0, 0xFF000000, 0);
+        curve.addPoint(10, 0);
+        curve.addPoint(10, 10);
+        curve.seal();
+
+        StringWriter out = new StringWriter();
+        SvgWriter writer = new SvgWriter(out, new Bounds(0, 0, 10, 10));
+        writer.write(curve);
+        writer.finish();
+
+        String svg = out.toString();
+        int start = svg.indexOf("d=\"") + 3;
+        String path = svg.substring(start, svg.indexOf('"', start));
+        assertEquals("M0,0 Q0 0 5 0 Q10 0 10 5 L10,10", path);
+    }
+}
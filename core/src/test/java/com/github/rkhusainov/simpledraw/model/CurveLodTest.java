@@ -0,0 +1,66 @@
+package com.github.rkhusainov.simpledraw.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CurveLodTest {
+
+    @Test
+    public void levelForPicksCoarsestWithinError() {
+        assertEquals(-1, CurveLod.levelFor(0.25f));
+        assertEquals(0, CurveLod.levelFor(0.5f));
+        assertEquals(0, CurveLod.levelFor(0.99f));
+        assertEquals(1, CurveLod.levelFor(1f));
+        assertEquals(3, CurveLod.levelFor(5f));
+        assertEquals(CurveLod.LEVEL_COUNT - 1, CurveLod.levelFor(1e6f));
+        assertEquals(-1, CurveLod.levelFor(Float.NaN));
+    }
+
+    @Test
+    public void coarserLevelsKeepFewerPointsWithinTolerance() {
+        Curve curve = new Curve(0, 0, 0xFF000000, 0);
+        for (int i = 1; i <= 5000; i++) {
+            curve.addPoint(i * 0.5f, (float) Math.sin(i / 50.0) * 200 + (i % 3) * 0.2f);
+        }
+        curve.seal();
+        CurveLod lod = curve.getLod();
+
+        int previous = curve.getPointCount();
+        for (int level = 0; level < CurveLod.LEVEL_COUNT; level++) {
+            PointBuffer points = lod.getLevel(curve, level);
+            assertTrue(points.size() <= previous);
+            previous = points.size();
+
+            // каждая точка кривой рядом с упрощённой ломаной
+            float tolerance = CurveLod.toleranceOf(level) * 1.001f;
+            PointBuffer all = curve.getPoints();
+            for (int i = 0; i < all.size(); i++) {
+                assertTrue(Geometry.isNearPolyline(points, points.size(), all.getX(i), all.getY(i), tolerance));
+            }
+        }
+        assertTrue(previous < curve.getPointCount() / 10);
+        assertTrue(lod.getLevel(curve, 2) == lod.getLevel(curve, 2));
+        assertTrue(lod.getByteCount() > 0);
+        assertTrue(curve.getLod() == lod);
+        Object path = new Object();
+        lod.setRenderCache(2, path);
+        assertTrue(lod.getRenderCache(2) == path);
+
+        lod.clear();
+        assertEquals(0, lod.getByteCount());
+        assertNull(lod.getRenderCache(2));
+        // уровня нет, кэш для него не запоминается
+        lod.setRenderCache(2, path);
+        assertNull(lod.getRenderCache(2));
+        assertEquals(previous, lod.getLevel(curve, CurveLod.LEVEL_COUNT - 1).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCurveInProgress() {
+        Curve curve = new Curve(0, 0, 0xFF000000);
+        curve.getLod().getLevel(curve, 0);
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.rkhusainov.simpledraw.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that feeding touch samples into the model does not allocate once buffers have grown.
+ * A single object per sample would show up as megabytes here.
+ */
+public class ModelAllocationTest {
+    private static final int SAMPLES = 100000;
+    private static final long MAX_BYTES = 1024;
+
+    private com.sun.management.ThreadMXBean mThreadBean;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        mThreadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(mThreadBean.isThreadAllocatedMemorySupported());
+        mThreadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void pointBufferAppendIsAllocationFree() {
+        final PointBuffer buffer = new PointBuffer();
+        Runnable append = new Runnable() {
+            @Override
+            public void run() {
+                buffer.clear();
+                for (int i = 0; i < SAMPLES; i++) {
+                    buffer.add(i, -i);
+                }
+            }
+        };
+        append.run();
+
+        long allocated = allocatedBy(append);
+        assertTrue("allocated " + allocated + " bytes", allocated < MAX_BYTES);
+    }
+
+    @Test
+    public void lineAndBoxUpdatesAreAllocationFree() {
+        final Line line = new Line(0, 0, 0);
+        final Box box = new Box(0, 0, 0);
+        Runnable move = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < SAMPLES; i++) {
+                    line.setEnd(i, i);
+                    box.setCurrent(i, i);
+                }
+            }
+        };
+        move.run();
+
+        long allocated = allocatedBy(move);
+        assertTrue("allocated " + allocated + " bytes", allocated < MAX_BYTES);
+    }
+
+    private long allocatedBy(Runnable runnable) {
+        long threadId = Thread.currentThread().getId();
+        long before = mThreadBean.getThreadAllocatedBytes(threadId);
+        runnable.run();
+        return mThreadBean.getThreadAllocatedBytes(threadId) - before;
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.rkhusainov.simpledraw.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PolygonTest {
+
+    @Test
+    public void sparsePointerIdsDoNotAddVertices() {
+        Polygon polygon = new Polygon(0);
+        Bounds dirty = new Bounds();
+        polygon.pointerDown(0, 10, 10, dirty);
+        polygon.pointerDown(7, 20, 10, dirty);
+        polygon.pointerDown(31, 15, 20, dirty);
+
+        PointBuffer points = polygon.getPoints();
+        assertEquals(3, points.size());
+        assertEquals(20, points.getX(1), 0);
+        assertEquals(15, points.getX(2), 0);
+
+        polygon.pointerMove(7, 25, 12, dirty);
+        assertEquals(25, points.getX(1), 0);
+        assertEquals(12, points.getY(1), 0);
+        assertFalse(polygon.pointerMove(5, 0, 0, dirty));
+        assertEquals(3, points.size());
+    }
+
+    @Test
+    public void liftedFingerKeepsItsVertex() {
+        Polygon polygon = new Polygon(0);
+        Bounds dirty = new Bounds();
+        polygon.pointerDown(0, 0, 0, dirty);
+        polygon.pointerDown(1, 10, 0, dirty);
+        polygon.pointerUp(1);
+        assertEquals(1, polygon.getPointerCount());
+        assertFalse(polygon.pointerMove(1, 50, 50, dirty));
+
+        // новый палец получил тот же id, но это новая вершина
+        polygon.pointerDown(1, 5, 8, dirty);
+        PointBuffer points = polygon.getPoints();
+        assertEquals(3, points.size());
+        assertEquals(10, points.getX(1), 0);
+        assertEquals(5, points.getX(2), 0);
+    }
+
+    @Test
+    public void extraFingersAreIgnored() {
+        Polygon polygon = new Polygon(0);
+        Bounds dirty = new Bounds();
+        for (int i = 0; i < Polygon.MAX_POINTERS; i++) {
+            assertTrue(polygon.pointerDown(i, i, i, dirty));
+        }
+        assertFalse(polygon.pointerDown(Polygon.MAX_POINTERS, 0, 0, dirty));
+        assertEquals(Polygon.MAX_POINTERS, polygon.getPoints().size());
+    }
+
+    @Test
+    public void versionChangesOnlyWhenVertexMoves() {
+        Polygon polygon = new Polygon(0);
+        Bounds dirty = new Bounds();
+        polygon.pointerDown(0, 1, 1, dirty);
+        int version = polygon.getVersion();
+
+        assertFalse(polygon.pointerMove(0, 1, 1, dirty));
+        assertEquals(version, polygon.getVersion());
+
+        dirty.setEmpty();
+        assertTrue(polygon.pointerMove(0, 30, 40, dirty));
+        assertTrue(version != polygon.getVersion());
+        // старое и новое положение
+        assertTrue(dirty.contains(1, 1));
+        assertTrue(dirty.contains(30, 39));
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.rkhusainov.simpledraw.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class QuadTreeTest {
+
+    @Test
+    public void queryMatchesBruteForceInInsertOrder() {
+        Random random = new Random(42);
+        QuadTree<Integer> tree = new QuadTree<>();
+        float[][] bounds = new float[2000][];
+        for (int i = 0; i < bounds.length; i++) {
+            float x = random.nextFloat() * 20000 - 10000;
+            float y = random.nextFloat() * 20000 - 10000;
+            bounds[i] = new float[]{x, y, x + random.nextFloat() * 300, y + random.nextFloat() * 300};
+            tree.insert(i, i, bounds[i][0], bounds[i][1], bounds[i][2], bounds[i][3]);
+        }
+
+        for (int q = 0; q < 100; q++) {
+            float x = random.nextFloat() * 20000 - 10000;
+            float y = random.nextFloat() * 20000 - 10000;
+            float[] area = {x, y, x + 1500, y + 1500};
+
+            List<Integer> actual = new ArrayList<>();
+            tree.query(area[0], area[1], area[2], area[3], actual);
+            assertEquals(bruteForce(bounds, area), actual);
+        }
+    }
+
+    @Test
+    public void removeAndUpdate() {
+        QuadTree<String> tree = new QuadTree<>();
+        tree.insert("a", 0, 0, 0, 10, 10);
+        tree.insert("b", 1, 100, 100, 110, 110);
+
+        List<String> result = new ArrayList<>();
+        tree.query(0, 0, 20, 20, result);
+        assertEquals(1, result.size());
+
+        tree.update("b", 5, 5, 15, 15);
+        result.clear();
+        tree.query(0, 0, 20, 20, result);
+        assertEquals(2, result.size());
+        assertEquals("a", result.get(0));
+
+        assertTrue(tree.remove("a"));
+        assertFalse(tree.remove("a"));
+        result.clear();
+        tree.query(0, 0, 20, 20, result);
+        assertEquals(1, result.size());
+        assertEquals("b", result.get(0));
+    }
+
+    @Test
+    public void growsToContainFarItems() {
+        QuadTree<String> tree = new QuadTree<>();
+        tree.insert("far", 0, -1e6f, -1e6f, -1e6f + 1, -1e6f + 1);
+        tree.insert("near", 1, 10, 10, 20, 20);
+
+        List<String> result = new ArrayList<>();
+        tree.query(-1e6f - 5, -1e6f - 5, -1e6f + 5, -1e6f + 5, result);
+        assertEquals(1, result.size());
+        assertEquals("far", result.get(0));
+    }
+
+    private static List<Integer> bruteForce(float[][] bounds, float[] area) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < bounds.length; i++) {
+            float[] b = bounds[i];
+            if (b[0] <= area[2] && b[2] >= area[0] && b[1] <= area[3] && b[3] >= area[1]) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+}
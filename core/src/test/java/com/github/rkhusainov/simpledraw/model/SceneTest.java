@@ -0,0 +1,115 @@
+package com.github.rkhusainov.simpledraw.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SceneTest {
+    private static final int BLACK = 0xFF000000;
+
+    @Test
+    public void hitTestFindsTopmostLikeBruteForce() {
+        Random random = new Random(7);
+        Scene scene = new Scene();
+        for (int i = 0; i < 3000; i++) {
+            scene.add(randomLine(random, 5000));
+        }
+
+        for (int q = 0; q < 500; q++) {
+            float x = random.nextFloat() * 5000;
+            float y = random.nextFloat() * 5000;
+            assertTrue(bruteForce(scene, x, y, 4) == scene.hitTest(x, y, 4));
+        }
+    }
+
+    @Test
+    public void hitTestUsesExactOutline() {
+        Scene scene = new Scene();
+        Line diagonal = new Line(0, 0, BLACK);
+        diagonal.setEnd(100, 100);
+        scene.add(diagonal);
+
+        // внутри границ, но далеко от самой линии
+        assertNull(scene.hitTest(90, 10, 2));
+        assertTrue(scene.hitTest(52, 48, 2) == diagonal);
+    }
+
+    @Test
+    public void hitTestIsFastOnLargeScene() {
+        Random random = new Random(3);
+        Scene scene = new Scene();
+        for (int i = 0; i < 100000; i++) {
+            scene.add(randomLine(random, 50000));
+        }
+
+        int queries = 10000;
+        float[] points = new float[queries * 2];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = random.nextFloat() * 50000;
+        }
+        // прогрев JIT
+        for (int i = 0; i < queries; i++) {
+            scene.hitTest(points[i * 2], points[i * 2 + 1], 8);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+            scene.hitTest(points[i * 2], points[i * 2 + 1], 8);
+        }
+        long perQuery = (System.nanoTime() - start) / queries;
+        assertTrue("hit test took " + perQuery + " ns", perQuery < 1000000);
+    }
+
+    @Test
+    public void insertKeepsDepth() {
+        Scene scene = new Scene();
+        Box bottom = box();
+        Box top = box();
+        scene.add(bottom);
+        scene.add(top);
+
+        // больше вставок в одно место, чем помещается между соседями, - с перенумерацией
+        Box first = box();
+        scene.insert(1, first);
+        Box middle = first;
+        for (int i = 1; i < 40; i++) {
+            middle = box();
+            scene.insert(1, middle);
+        }
+        assertEquals(42, scene.size());
+        assertTrue(scene.get(0) == bottom);
+        assertTrue(scene.get(1) == middle);
+        assertTrue(scene.get(41) == top);
+        assertTrue(scene.hitTest(5, 5, 0) == top);
+
+        scene.remove(top);
+        assertTrue(scene.hitTest(5, 5, 0) == first);
+        assertEquals(0, scene.indexOf(bottom));
+    }
+
+    private static Line randomLine(Random random, float size) {
+        float x = random.nextFloat() * size;
+        float y = random.nextFloat() * size;
+        Line line = new Line(x, y, BLACK);
+        line.setEnd(x + random.nextFloat() * 200 - 100, y + random.nextFloat() * 200 - 100);
+        return line;
+    }
+
+    private static Box box() {
+        Box box = new Box(0, 0, BLACK);
+        box.setCurrent(10, 10);
+        return box;
+    }
+
+    private static Shape bruteForce(Scene scene, float x, float y, float tolerance) {
+        for (int i = scene.size() - 1; i >= 0; i--) {
+            if (scene.get(i).hitTest(x, y, tolerance)) {
+                return scene.get(i);
+            }
+        }
+        return null;
+    }
+}
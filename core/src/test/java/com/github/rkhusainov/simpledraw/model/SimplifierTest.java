@@ -0,0 +1,67 @@
+package com.github.rkhusainov.simpledraw.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimplifierTest {
+
+    @Test
+    public void straightLineKeepsEndpointsOnly() {
+        PointBuffer in = new PointBuffer();
+        for (int i = 0; i <= 100; i++) {
+            in.add(i, i * 0.5f);
+        }
+        PointBuffer out = new PointBuffer();
+
+        assertEquals(2, Simplifier.simplify(in, 0.1f, out));
+        assertEquals(0f, out.getX(0), 0f);
+        assertEquals(100f, out.getX(1), 0f);
+        assertEquals(50f, out.getY(1), 0f);
+    }
+
+    @Test
+    public void zeroToleranceKeepsEveryPoint() {
+        PointBuffer in = new PointBuffer();
+        in.add(0, 0);
+        in.add(1, 0);
+        in.add(2, 0);
+        PointBuffer out = new PointBuffer();
+
+        assertEquals(3, Simplifier.simplify(in, 0, out));
+    }
+
+    @Test
+    public void droppedPointsStayWithinTolerance() {
+        Random random = new Random(7);
+        PointBuffer in = new PointBuffer();
+        float x = 0;
+        float y = 0;
+        for (int i = 0; i < 5000; i++) {
+            x += random.nextFloat() * 4;
+            y += random.nextFloat() * 4 - 2;
+            in.add(x, y);
+        }
+        float tolerance = 1.5f;
+        PointBuffer out = new PointBuffer();
+
+        int kept = Simplifier.simplify(in, tolerance, out);
+        assertTrue(kept < in.size());
+        assertEquals(in.getX(0), out.getX(0), 0f);
+        assertEquals(in.getX(in.size() - 1), out.getX(kept - 1), 0f);
+
+        // каждая исходная точка лежит не дальше допуска от своего отрезка упрощённой линии
+        int segment = 0;
+        for (int i = 0; i < in.size(); i++) {
+            while (segment < kept - 2 && in.getX(i) > out.getX(segment + 1)) {
+                segment++;
+            }
+            float distanceSq = Geometry.distanceToSegmentSq(in.getX(i), in.getY(i),
+                    out.getX(segment), out.getY(segment), out.getX(segment + 1), out.getY(segment + 1));
+            assertTrue("point " + i, distanceSq <= tolerance * tolerance * 1.0001f);
+        }
+    }
+}